@@ -0,0 +1,72 @@
+package com.bruno.abreu.productms.exception.handler;
+
+import com.bruno.abreu.productms.controller.ProductController;
+import com.bruno.abreu.productms.exception.InvalidBatch;
+import com.bruno.abreu.productms.model.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning failures into error responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlobalExceptionHandlerBenchmark {
+
+    private GlobalExceptionHandler handler;
+    private MethodArgumentNotValidException notValidException;
+    private InvalidBatch invalidBatch;
+    private WebRequest webRequest;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        handler = new GlobalExceptionHandler();
+
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(new Product(), "product");
+        bindingResult.addError(new FieldError("product", "name", "Name must not be blank"));
+        bindingResult.addError(new FieldError("product", "description", "Description must not be blank"));
+        bindingResult.addError(new FieldError("product", "price", "Price must not be null"));
+        MethodParameter parameter = new MethodParameter(
+                ProductController.class.getMethod("create", Product.class), 0);
+        notValidException = new MethodArgumentNotValidException(parameter, bindingResult);
+
+        invalidBatch = new InvalidBatch("Batch contains invalid items", Map.of(
+                1, List.of("Name must not be blank", "Price must not be null"),
+                7, List.of("Price must be greater than 0")));
+
+        webRequest = new ServletWebRequest(new MockHttpServletRequest());
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> handleMethodArgumentNotValid() {
+        return handler.handleMethodArgumentNotValid(
+                notValidException, new HttpHeaders(), HttpStatus.BAD_REQUEST, webRequest);
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> handleInvalidBatch() {
+        return handler.handleInvalidBatch(invalidBatch);
+    }
+
+    @Benchmark
+    public ResponseEntity handleProductNotFound() {
+        return handler.handleProductNotFound();
+    }
+}
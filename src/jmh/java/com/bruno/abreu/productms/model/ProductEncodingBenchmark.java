@@ -0,0 +1,102 @@
+package com.bruno.abreu.productms.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding and decoding a page of products as JSON and as CBOR, each with and without the gzip that
+ * server.compression applies. The payload size of each combination is reported as the bytes secondary metric.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductEncodingBenchmark {
+
+    public enum Encoding {
+        JSON, CBOR
+    }
+
+    @Param({"JSON", "CBOR"})
+    private Encoding encoding;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+
+    private List<Product> products;
+    private byte[] encoded;
+
+    /**
+     * Size of the last encoded page, assigned rather than accumulated so the counter reads as bytes per response.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Payload {
+
+        public long bytes;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (encoding == Encoding.CBOR) {
+            builder.factory(new CBORFactory());
+        }
+        ObjectMapper objectMapper = builder.build();
+        TypeReference<List<Product>> listType = new TypeReference<>() {
+        };
+        writer = objectMapper.writerFor(listType);
+        reader = objectMapper.readerFor(listType);
+
+        products = ProductSamples.products(size);
+        encoded = writer.writeValueAsBytes(products);
+        if (gzip) {
+            encoded = compress(encoded);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(Payload payload) throws IOException {
+        byte[] bytes = writer.writeValueAsBytes(products);
+        if (gzip) {
+            bytes = compress(bytes);
+        }
+        payload.bytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public List<Product> decode() throws IOException {
+        return gzip ? reader.readValue(new GZIPInputStream(new ByteArrayInputStream(encoded)))
+                : reader.readValue(encoded);
+    }
+
+    private static byte[] compress(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,70 @@
+package com.bruno.abreu.productms.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the request and response bodies, with an ObjectMapper configured like Spring Boot's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductJsonBenchmark {
+
+    private ObjectWriter productWriter;
+    private ObjectReader productReader;
+    private ObjectWriter listWriter;
+    private ObjectReader listReader;
+
+    private Product product;
+    private List<Product> products;
+    private byte[] productJson;
+    private byte[] productsJson;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        TypeReference<List<Product>> listType = new TypeReference<>() {
+        };
+        productWriter = objectMapper.writerFor(Product.class);
+        productReader = objectMapper.readerFor(Product.class);
+        listWriter = objectMapper.writerFor(listType);
+        listReader = objectMapper.readerFor(listType);
+
+        product = ProductSamples.product(1);
+        products = ProductSamples.products(100);
+        productJson = productWriter.writeValueAsBytes(product);
+        productsJson = listWriter.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] serializeProduct() throws IOException {
+        return productWriter.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public Product deserializeProduct() throws IOException {
+        return productReader.readValue(productJson);
+    }
+
+    @Benchmark
+    public byte[] serializeProductList() throws IOException {
+        return listWriter.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public List<Product> deserializeProductList() throws IOException {
+        return listReader.readValue(productsJson);
+    }
+}
@@ -0,0 +1,37 @@
+package com.bruno.abreu.productms.model;
+
+import com.bruno.abreu.productms.model.id.TimeOrderedUuid;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class ProductSamples {
+
+    private ProductSamples() {
+    }
+
+    public static Product product(int index) {
+        return Product.builder()
+                .id(TimeOrderedUuid.generate())
+                .name("Product " + index)
+                .description("Description " + index + " of a product with a description about as long as the " +
+                        "ones in the catalog, so that serialization and search costs are realistic")
+                .price(BigDecimal.valueOf(100 + index % 1000 * 100L, Product.PRICE_SCALE))
+                .build();
+    }
+
+    public static List<Product> products(int count) {
+        return IntStream.range(0, count).mapToObj(ProductSamples::product).collect(Collectors.toList());
+    }
+
+    /**
+     * Same as {@link #products(int)} without ids, ready to be created.
+     */
+    public static List<Product> newProducts(int count) {
+        List<Product> products = products(count);
+        products.forEach(product -> product.setId(null));
+        return products;
+    }
+}
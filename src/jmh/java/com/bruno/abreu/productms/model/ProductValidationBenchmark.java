@@ -0,0 +1,51 @@
+package com.bruno.abreu.productms.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation cost paid on every create and update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private Product validProduct;
+    private Product invalidProduct;
+
+    @Setup
+    public void setup() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validProduct = ProductSamples.product(1);
+        invalidProduct = Product.builder().price(BigDecimal.ONE.negate()).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Product>> validateValidProduct() {
+        return validator.validate(validProduct);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Product>> validateInvalidProduct() {
+        return validator.validate(invalidProduct);
+    }
+}
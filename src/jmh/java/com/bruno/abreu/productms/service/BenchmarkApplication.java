@@ -0,0 +1,28 @@
+package com.bruno.abreu.productms.service;
+
+import com.bruno.abreu.productms.ProductMsApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.stream.Stream;
+
+/**
+ * Starts the application without the web layer, on the H2 database configured for the test scope. The
+ * properties are passed as command line arguments so they override application.properties.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext run(String... properties) {
+        String[] args = Stream.concat(Stream.of("logging.level.root=warn"), Stream.of(properties))
+                .map(property -> "--" + property)
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(ProductMsApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args);
+    }
+}
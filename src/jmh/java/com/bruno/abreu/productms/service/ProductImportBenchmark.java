@@ -0,0 +1,71 @@
+package com.bruno.abreu.productms.service;
+
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductSamples;
+import com.bruno.abreu.productms.service.importing.ImportFormat;
+import com.bruno.abreu.productms.service.importing.ImportJob;
+import com.bruno.abreu.productms.service.importing.ProductImporter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end import throughput (rows per second): spooling the body, parsing, validation and the chunked
+ * inserts with their outbox events, on the embedded H2 database. Each invocation submits the import as a
+ * request does and waits for its job to finish on the task executor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductImportBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"CSV", "NDJSON"})
+    public ImportFormat format;
+
+    private ConfigurableApplicationContext context;
+    private ProductImporter productImporter;
+    private byte[] body;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        context = BenchmarkApplication.run("product.search.backend=jpa", "product.events.relay-enabled=false");
+        productImporter = context.getBean(ProductImporter.class);
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        StringBuilder text = new StringBuilder(format == ImportFormat.CSV ? "name,description,price\n" : "");
+        for (Product product : ProductSamples.newProducts(ROWS)) {
+            if (format == ImportFormat.CSV) {
+                text.append(product.getName()).append(",\"").append(product.getDescription()).append("\",")
+                        .append(product.getPrice().toPlainString()).append('\n');
+            } else {
+                text.append(objectMapper.writeValueAsString(product)).append('\n');
+            }
+        }
+        body = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportJob importRows() throws InterruptedException {
+        ImportJob job = productImporter.submit(new ByteArrayInputStream(body), body.length, StandardCharsets.UTF_8,
+                format);
+        while (job.getStatus() == ImportJob.Status.RUNNING) {
+            Thread.sleep(1);
+        }
+        return job;
+    }
+}
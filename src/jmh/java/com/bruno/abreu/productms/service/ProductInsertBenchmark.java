@@ -0,0 +1,49 @@
+package com.bruno.abreu.productms.service;
+
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductSamples;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched insert throughput (rows per second) for each id strategy. Runs on the embedded H2 database; the
+ * index size comparison has to be read from MySQL, see db/mysql/product-id-to-binary.sql.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductInsertBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"random", "time-ordered"})
+    public String idStrategy;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.run(
+                "spring.jpa.properties.product.id-strategy=" + idStrategy,
+                "product.search.backend=jpa");
+        productService = context.getBean(ProductService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<Product> insertBatch() {
+        return productService.createAll(ProductSamples.newProducts(BATCH_SIZE));
+    }
+}
@@ -0,0 +1,78 @@
+package com.bruno.abreu.productms.service;
+
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductSamples;
+import com.bruno.abreu.productms.service.cache.ProductCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * ProductService read paths against the embedded H2 database of the test scope, seeded with
+ * {@value #CATALOG_SIZE} products.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+
+    @Param({"index", "jpa"})
+    public String searchBackend;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ProductCache productCache;
+    private List<UUID> ids;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.run("product.search.backend=" + searchBackend);
+        productService = context.getBean(ProductService.class);
+        productCache = context.getBean(ProductCache.class);
+        ids = productService.createAll(ProductSamples.newProducts(CATALOG_SIZE)).stream()
+                .map(Product::getId)
+                .collect(Collectors.toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private UUID randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    @Benchmark
+    public Product findByIdFromCache() {
+        return productService.findById(randomId());
+    }
+
+    @Benchmark
+    public Product findByIdFromDatabase() {
+        UUID id = randomId();
+        productCache.evict(id);
+        return productService.findById(id);
+    }
+
+    @Benchmark
+    public List<Product> findBySearchParameters() {
+        return productService.findBySearchParameters("duct 12", new BigDecimal("10.0"), new BigDecimal("500.0"));
+    }
+
+    @Benchmark
+    public List<Product> findBySearchParametersPriceOnly() {
+        return productService.findBySearchParameters("", new BigDecimal("10.0"), new BigDecimal("20.0"));
+    }
+}
@@ -2,12 +2,19 @@ package com.bruno.abreu.productms;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
-@SpringBootApplication
+@SpringBootApplication(exclude = R2dbcTransactionManagerAutoConfiguration.class)
+@ConfigurationPropertiesScan
 public class ProductMsApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(ProductMsApplication.class, args);
+        SpringApplication application = new SpringApplication(ProductMsApplication.class);
+        // Startup steps (bean creation, Flyway, Hibernate) are timed and served by /actuator/startup
+        application.setApplicationStartup(new BufferingApplicationStartup(2048));
+        application.run(args);
     }
 
 }
@@ -0,0 +1,19 @@
+package com.bruno.abreu.productms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "product.batch")
+public class BatchProperties {
+
+    /**
+     * Maximum number of items accepted by a single batch call.
+     */
+    private int maxSize = 1000;
+
+    /**
+     * Number of items flushed per JDBC batch, should match hibernate.jdbc.batch_size.
+     */
+    private int chunkSize = 50;
+}
@@ -0,0 +1,29 @@
+package com.bruno.abreu.productms.config;
+
+import com.bruno.abreu.productms.service.cache.ProductCache;
+import com.bruno.abreu.productms.service.cache.SharedProductCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfiguration {
+
+    @Bean
+    public ProductCache productCache(ProductCacheProperties properties,
+                                     ObjectProvider<SharedProductCache> sharedProductCache,
+                                     MeterRegistry meterRegistry) {
+        ProductCache productCache = new ProductCache(properties, sharedProductCache.getIfAvailable());
+        CaffeineCacheMetrics.monitor(meterRegistry, productCache.getNativeCache().synchronous(), "products");
+        return productCache;
+    }
+
+    @Bean
+    @ConditionalOnProperty("product.cache.shared.url")
+    public SharedProductCache sharedProductCache(ProductCacheProperties properties) {
+        return new SharedProductCache(properties);
+    }
+}
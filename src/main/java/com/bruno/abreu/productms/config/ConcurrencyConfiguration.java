@@ -0,0 +1,73 @@
+package com.bruno.abreu.productms.config;
+
+import com.bruno.abreu.productms.service.bulkhead.DatabaseBulkhead;
+import com.bruno.abreu.productms.service.bulkhead.DatabaseBulkheadAspect;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ConcurrencyConfiguration {
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    @Profile("!reactive")
+    public DatabaseBulkhead databaseBulkhead(ConcurrencyProperties properties,
+                                             DataSource dataSource,
+                                             MeterRegistry meterRegistry) {
+        int permits = properties.getDatabasePermits() != null
+                ? properties.getDatabasePermits()
+                : poolSize(dataSource);
+        return new DatabaseBulkhead(permits, properties.getDatabaseMaxWait(), meterRegistry);
+    }
+
+    @Bean
+    @Profile("!reactive")
+    public DatabaseBulkheadAspect databaseBulkheadAspect(DatabaseBulkhead databaseBulkhead) {
+        return new DatabaseBulkheadAspect(databaseBulkhead);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "product.concurrency.virtual-threads", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Replaces the default pool behind {@code StreamingResponseBody} and other MVC async responses.
+     */
+    @Bean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    @ConditionalOnProperty(name = "product.concurrency.virtual-threads", havingValue = "true")
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Size of the primary pool, which the routing data source unwraps to. The replica pools are left out on
+     * purpose: writes and read-write transactions always use the primary, and replica reads fall back to it
+     * when no replica is healthy or within the read-your-writes window, so every permitted call must fit in
+     * the primary pool for callers to wait on the bulkhead rather than inside Hikari.
+     */
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException ex) {
+            // Not a Hikari pool, use Hikari's default size
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+}
@@ -0,0 +1,27 @@
+package com.bruno.abreu.productms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "product.concurrency")
+public class ConcurrencyProperties {
+
+    /**
+     * Run request handlers and async responses on virtual threads instead of the Tomcat worker pool.
+     */
+    private boolean virtualThreads = false;
+
+    /**
+     * Maximum number of concurrent database calls, defaults to the maximum size of the primary Hikari pool.
+     * Replica pools do not add permits, since replica reads fall back to the primary.
+     */
+    private Integer databasePermits;
+
+    /**
+     * How long a call waits for a database permit before failing with 503.
+     */
+    private Duration databaseMaxWait = Duration.ofSeconds(10);
+}
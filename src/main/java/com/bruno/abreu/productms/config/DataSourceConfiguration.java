@@ -0,0 +1,97 @@
+package com.bruno.abreu.productms.config;
+
+import com.bruno.abreu.productms.service.replica.ReadReplicaAspect;
+import com.bruno.abreu.productms.service.replica.ReplicaRouting;
+import com.bruno.abreu.productms.service.replica.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableScheduling
+@Profile("!reactive")
+public class DataSourceConfiguration {
+
+    @Bean
+    public ReplicaRouting replicaRouting(ReplicaProperties properties) {
+        return new ReplicaRouting(properties::getReadYourWritesWindow);
+    }
+
+    @Bean
+    public ReadReplicaAspect readReplicaAspect(ReplicaRouting replicaRouting) {
+        return new ReadReplicaAspect(replicaRouting);
+    }
+
+    /**
+     * Replaces the auto-configured DataSource once product.datasource.replicas is set. The primary keeps
+     * the spring.datasource settings; the application DataSource routes between it and the replicas.
+     */
+    @Configuration
+    @ConditionalOnProperty(name = "product.datasource.replicas[0].url")
+    static class Replicas {
+
+        @Bean
+        @ConfigurationProperties("spring.datasource.hikari")
+        public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+            return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+
+        @Bean
+        public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                                 DataSourceProperties dataSourceProperties,
+                                                                 ReplicaProperties properties,
+                                                                 ReplicaRouting replicaRouting) {
+            List<HikariDataSource> replicas = new ArrayList<>();
+            for (ReplicaProperties.Replica replica : properties.getReplicas()) {
+                HikariConfig config = new HikariConfig();
+                config.setPoolName("replica-" + replicas.size());
+                config.setJdbcUrl(replica.getUrl());
+                config.setUsername(replica.getUsername() != null
+                        ? replica.getUsername()
+                        : dataSourceProperties.determineUsername());
+                config.setPassword(replica.getPassword() != null
+                        ? replica.getPassword()
+                        : dataSourceProperties.determinePassword());
+                config.setMaximumPoolSize(replica.getMaximumPoolSize());
+                config.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+                config.setReadOnly(true);
+                // A replica that is down at startup is left to the health checks instead of failing startup
+                config.setInitializationFailTimeout(-1);
+                replicas.add(new HikariDataSource(config));
+            }
+            int healthCheckTimeout = (int) Math.max(1, properties.getConnectionTimeout().toSeconds());
+            return new ReplicaRoutingDataSource(primaryDataSource, replicas, replicaRouting,
+                    properties.getBalancing(), healthCheckTimeout);
+        }
+
+        /**
+         * The routing happens when a statement first needs a connection, once the transaction it runs in
+         * (read-only or not) has been set up.
+         */
+        @Bean
+        @Primary
+        public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+            return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+        }
+
+        @Bean
+        public SchedulingConfigurer replicaHealthCheck(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                                       ReplicaProperties properties) {
+            return registrar -> registrar.addFixedDelayTask(
+                    replicaRoutingDataSource::checkHealth, properties.getHealthCheckInterval().toMillis());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.bruno.abreu.productms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "product.export")
+public class ExportProperties {
+
+    /**
+     * Rows read per keyset page. The database permit and the connection are held while one page is read,
+     * and released before it is written to the client.
+     */
+    private int pageSize = 1000;
+}
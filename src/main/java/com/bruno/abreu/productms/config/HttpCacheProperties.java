@@ -0,0 +1,24 @@
+package com.bruno.abreu.productms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "product.http-cache")
+public class HttpCacheProperties {
+
+    /**
+     * Cache-Control sent with GET /products/{id}.
+     */
+    private String findById = "no-cache";
+
+    /**
+     * Cache-Control sent with GET /products.
+     */
+    private String findAll = "no-cache";
+
+    /**
+     * Cache-Control sent with GET /products/search.
+     */
+    private String search = "no-cache";
+}
@@ -0,0 +1,32 @@
+package com.bruno.abreu.productms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "product.import")
+public class ImportProperties {
+
+    /**
+     * Rows committed per transaction. Each transaction is still written in JDBC batches of
+     * product.batch.chunk-size.
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * Rejected rows listed on an import job, the rest are only counted.
+     */
+    private int maxRejects = 1000;
+
+    /**
+     * Finished import jobs kept for GET /imports.
+     */
+    private int retainedJobs = 100;
+
+    /**
+     * Largest import body accepted. The body is spooled to a temporary file before the import starts, so this
+     * bounds the disk a single upload can take; larger bodies are answered with 413.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+}
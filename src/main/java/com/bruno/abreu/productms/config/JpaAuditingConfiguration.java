@@ -0,0 +1,11 @@
+package com.bruno.abreu.productms.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+@Configuration
+@EnableJpaAuditing
+@Profile("!reactive")
+public class JpaAuditingConfiguration {
+}
@@ -0,0 +1,43 @@
+package com.bruno.abreu.productms.config;
+
+import com.bruno.abreu.productms.repository.ProductEventRepository;
+import com.bruno.abreu.productms.service.outbox.FileProductEventSink;
+import com.bruno.abreu.productms.service.outbox.InMemoryProductEventSink;
+import com.bruno.abreu.productms.service.outbox.ProductEventRelay;
+import com.bruno.abreu.productms.service.outbox.ProductEventSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+@EnableScheduling
+@Profile("!reactive")
+public class OutboxConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "product.events.sink", havingValue = "memory", matchIfMissing = true)
+    public InMemoryProductEventSink inMemoryProductEventSink(ProductEventProperties properties) {
+        return new InMemoryProductEventSink(properties.getMemoryCapacity());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "product.events.sink", havingValue = "file")
+    public FileProductEventSink fileProductEventSink(ProductEventProperties properties, ObjectMapper objectMapper) {
+        return new FileProductEventSink(properties.getFile(), objectMapper);
+    }
+
+    @Bean
+    public ProductEventRelay productEventRelay(ProductEventRepository productEventRepository,
+                                               ProductEventSink productEventSink,
+                                               TransactionTemplate transactionTemplate,
+                                               ProductEventProperties properties,
+                                               MeterRegistry meterRegistry) {
+        return new ProductEventRelay(
+                productEventRepository, productEventSink, transactionTemplate, properties, meterRegistry);
+    }
+}
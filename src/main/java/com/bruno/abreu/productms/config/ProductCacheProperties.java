@@ -0,0 +1,64 @@
+package com.bruno.abreu.productms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "product.cache")
+public class ProductCacheProperties {
+
+    private long maximumSize = 10_000;
+
+    /**
+     * How long a product stays in the near cache of each instance. With a shared tier this also bounds how
+     * long an instance can serve a product changed elsewhere if it misses the invalidation.
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+    private Duration negativeTtl = Duration.ofSeconds(30);
+
+    /**
+     * How long a product missing from the cache waits for others to read them together in one query. Zero
+     * reads each one on its own.
+     */
+    private Duration batchWindow = Duration.ZERO;
+
+    /**
+     * Number of ids that ends the batch window early.
+     */
+    private int batchMaxSize = 100;
+
+    private Shared shared = new Shared();
+
+    @Data
+    public static class Shared {
+
+        /**
+         * Redis shared by all instances, e.g. redis://localhost:6379. Without it every instance only has its
+         * own near cache.
+         */
+        private String url;
+
+        /**
+         * Prefix of the keys and of the invalidation channel, to share one Redis with other services.
+         */
+        private String keyPrefix = "product-ms:";
+
+        /**
+         * How long a product, or a deleted id, stays in the shared tier. Misses use negative-ttl.
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /**
+         * Timeout of each Redis command. A shared tier that fails or times out is skipped and the product is
+         * read from the database.
+         */
+        private Duration timeout = Duration.ofMillis(250);
+
+        /**
+         * How long other instances wait for the one loading a missing product before loading it themselves.
+         */
+        private Duration loadTimeout = Duration.ofSeconds(1);
+    }
+}
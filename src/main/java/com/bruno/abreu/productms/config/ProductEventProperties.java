@@ -0,0 +1,49 @@
+package com.bruno.abreu.productms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "product.events")
+public class ProductEventProperties {
+
+    /**
+     * Where the relay publishes events: memory or file.
+     */
+    private String sink = "memory";
+
+    /**
+     * File the file sink appends events to, one JSON object per line.
+     */
+    private Path file = Path.of("product-events.ndjson");
+
+    /**
+     * Number of most recent events the memory sink keeps.
+     */
+    private int memoryCapacity = 10_000;
+
+    /**
+     * Whether this instance runs the relay. Events are recorded and served by GET /products/changes either way.
+     */
+    private boolean relayEnabled = true;
+
+    private Duration relayInterval = Duration.ofSeconds(1);
+
+    /**
+     * Maximum number of events published per relay transaction.
+     */
+    private int relayBatchSize = 500;
+
+    /**
+     * How long published events stay available to GET /products/changes.
+     */
+    private Duration retention = Duration.ofDays(7);
+
+    /**
+     * How often the relay deletes the published events past the retention.
+     */
+    private Duration pruneInterval = Duration.ofHours(1);
+}
@@ -0,0 +1,59 @@
+package com.bruno.abreu.productms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "product.datasource")
+public class ReplicaProperties {
+
+    public enum Balancing {
+        ROUND_ROBIN, LEAST_LOADED
+    }
+
+    /**
+     * Read replicas of spring.datasource. Without any, every query goes to spring.datasource.
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * How a replica read picks among the healthy replicas: in turn, or the one with fewest connections in use.
+     */
+    private Balancing balancing = Balancing.ROUND_ROBIN;
+
+    private Duration healthCheckInterval = Duration.ofSeconds(10);
+
+    /**
+     * How long a replica read waits for a replica connection, and for a health check to answer, before the
+     * replica is considered down.
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+
+    /**
+     * After a write commits, replica reads go to the primary for this long, so they see the write despite
+     * replication lag. Zero turns it off.
+     */
+    private Duration readYourWritesWindow = Duration.ZERO;
+
+    @Data
+    public static class Replica {
+
+        private String url;
+
+        /**
+         * Defaults to spring.datasource.username.
+         */
+        private String username;
+
+        /**
+         * Defaults to spring.datasource.password.
+         */
+        private String password;
+
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,43 @@
+package com.bruno.abreu.productms.config;
+
+import com.bruno.abreu.productms.repository.ProductRepository;
+import com.bruno.abreu.productms.service.search.InMemoryProductSearchIndex;
+import com.bruno.abreu.productms.service.search.JpaProductSearchBackend;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Searches run on the database by default. The in-memory index is opt-in with
+ * {@code product.search.backend=index}: each instance holds its own copy of the whole catalog and only sees
+ * the writes it serves, so it only fits a single instance.
+ */
+@Configuration
+@Profile("!reactive")
+public class SearchConfiguration {
+
+    @Bean
+    public JpaProductSearchBackend jpaProductSearchBackend(ProductRepository productRepository) {
+        return new JpaProductSearchBackend(productRepository);
+    }
+
+    /**
+     * Falls back to the {@link JpaProductSearchBackend} bean, so searches before the first build still go
+     * through the database bulkhead.
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "product.search.backend", havingValue = "index")
+    public InMemoryProductSearchIndex productSearchIndex(JpaProductSearchBackend jpaProductSearchBackend,
+                                                        ProductRepository productRepository,
+                                                        TransactionTemplate transactionTemplate,
+                                                        EntityManager entityManager) {
+        return new InMemoryProductSearchIndex(
+                jpaProductSearchBackend, productRepository, transactionTemplate, entityManager);
+    }
+}
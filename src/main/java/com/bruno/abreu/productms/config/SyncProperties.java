@@ -0,0 +1,25 @@
+package com.bruno.abreu.productms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "product.sync")
+public class SyncProperties {
+
+    /**
+     * Modifications younger than this are left out of GET /products?modifiedSince. Timestamps are taken before
+     * commit, so a transaction still running (or an instance with a lagging clock) could otherwise commit a
+     * row behind a watermark a client has already moved past.
+     */
+    private Duration settleTime = Duration.ofSeconds(5);
+
+    /**
+     * Deletes set the deleted_at of the product instead of removing the row and inserting a tombstone, so a
+     * delete is a single UPDATE and the row itself is what GET /products?modifiedSince reports. Deleted rows
+     * stay in the table, hidden from every other query.
+     */
+    private boolean softDelete = false;
+}
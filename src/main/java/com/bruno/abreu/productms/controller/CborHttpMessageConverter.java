@@ -0,0 +1,21 @@
+package com.bruno.abreu.productms.controller;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads and writes {@code application/cbor} for clients that ask for it in {@code Accept} or {@code Content-Type}.
+ * Unlike Spring MVC's default CBOR converter it starts from Spring Boot's builder, so the {@code spring.jackson.*}
+ * settings and registered modules apply to both encodings and a CBOR body has the same fields as the JSON one.
+ */
+@Component
+@Profile("!reactive")
+public class CborHttpMessageConverter extends MappingJackson2CborHttpMessageConverter {
+
+    public CborHttpMessageConverter(Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder) {
+        super(jackson2ObjectMapperBuilder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,149 @@
+package com.bruno.abreu.productms.controller;
+
+import com.bruno.abreu.productms.exception.PreconditionFailed;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductField;
+import com.bruno.abreu.productms.model.ProductVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * ETag and Last-Modified handling for the product endpoints. A product's ETag is its version followed by the
+ * media type it is written in, and a list's ETag is a weak digest of the media type and the ids and versions
+ * it contains. Both vary with {@code Accept}.
+ *
+ * <p>The product ETag is strong so that it can be sent back in If-Match, and since the JSON and CBOR bodies
+ * differ byte for byte it names the media type. Tomcat does not compress a response with a strong ETag, so
+ * gzip and identity never share one. List ETags are weak, which lets Tomcat compress the pages.
+ */
+final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    static HttpHeaders validators(Product product, HttpHeaders request) {
+        return validators(ProductVersion.of(product), request);
+    }
+
+    static HttpHeaders validators(ProductVersion product, HttpHeaders request) {
+        HttpHeaders headers = varyByAccept();
+        if (product.getVersion() != null) {
+            headers.setETag("\"" + product.getVersion() + "-" + representation(request) + "\"");
+        }
+        if (product.getUpdatedAt() != null) {
+            headers.setLastModified(product.getUpdatedAt());
+        }
+        return headers;
+    }
+
+    static HttpHeaders validators(List<Product> products, HttpHeaders request) {
+        return digest(products, representation(request) + ";");
+    }
+
+    /**
+     * Validators of a list where each product only has {@code fields}, which is a different representation
+     * than the whole products and so has a different ETag.
+     */
+    static HttpHeaders validators(List<Product> products, Set<ProductField> fields, HttpHeaders request) {
+        String representation = fields.stream().map(ProductField::getName).collect(Collectors.joining(",", "", ";"));
+        return digest(products, representation(request) + ";" + representation);
+    }
+
+    private static HttpHeaders digest(List<Product> products, String representation) {
+        StringBuilder content = new StringBuilder(representation);
+        products.forEach(product -> content.append(product.getId()).append(':').append(product.getVersion()).append(','));
+        HttpHeaders headers = varyByAccept();
+        headers.setETag("W/\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"");
+        return headers;
+    }
+
+    private static HttpHeaders varyByAccept() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setVary(List.of(HttpHeaders.ACCEPT));
+        return headers;
+    }
+
+    /**
+     * The media type the response is written in, cbor when {@code Accept} prefers CBOR over JSON and json
+     * otherwise, the same choice the message converters make.
+     */
+    private static String representation(HttpHeaders request) {
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(request.getAccept());
+        } catch (InvalidMediaTypeException ex) {
+            return "json";
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return "json";
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return "cbor";
+            }
+        }
+        return "json";
+    }
+
+    static boolean isConditional(HttpHeaders request) {
+        return !request.getIfNoneMatch().isEmpty() || request.getIfModifiedSince() != -1;
+    }
+
+    /**
+     * Whether the client copy described by If-None-Match (or, without it, If-Modified-Since) is still
+     * current. ETags are compared weakly, as required for If-None-Match.
+     */
+    static boolean isNotModified(HttpHeaders request, HttpHeaders validators) {
+        List<String> ifNoneMatch = request.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            String etag = validators.getETag();
+            return etag != null && ifNoneMatch.stream()
+                    .anyMatch(tag -> tag.equals("*") || opaqueTag(tag).equals(opaqueTag(etag)));
+        }
+        long ifModifiedSince = request.getIfModifiedSince();
+        long lastModified = validators.getLastModified();
+        return ifModifiedSince != -1 && lastModified != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * The version a client expects to overwrite, taken from If-Match, or null when it did not send one. The
+     * ETag of either media type names the same version.
+     *
+     * @throws PreconditionFailed if If-Match is not a version of this API
+     */
+    static Long expectedVersion(HttpHeaders request) {
+        List<String> ifMatch = request.getIfMatch();
+        if (ifMatch.isEmpty() || ifMatch.contains("*")) {
+            return null;
+        }
+        if (ifMatch.size() > 1 || ifMatch.get(0).startsWith("W/")) {
+            throw new PreconditionFailed();
+        }
+        String tag = opaqueTag(ifMatch.get(0));
+        if (tag.endsWith("-json") || tag.endsWith("-cbor")) {
+            tag = tag.substring(0, tag.length() - "-json".length());
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailed();
+        }
+    }
+
+    private static String opaqueTag(String etag) {
+        String tag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        return tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"") ? tag.substring(1, tag.length() - 1) : tag;
+    }
+}
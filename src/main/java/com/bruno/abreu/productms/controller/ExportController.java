@@ -0,0 +1,71 @@
+package com.bruno.abreu.productms.controller;
+
+import com.bruno.abreu.productms.service.exporting.ExportFormat;
+import com.bruno.abreu.productms.service.exporting.ProductExporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@Profile("!reactive")
+public class ExportController {
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final ProductExporter productExporter;
+
+    @Autowired
+    public ExportController(ProductExporter productExporter) {
+        this.productExporter = productExporter;
+    }
+
+    /**
+     * Streams the whole catalog as NDJSON or CSV, gzipped when the client accepts it. The body is written
+     * from the request thread rather than as an async {@code StreamingResponseBody}, so a long export is not
+     * cut by the async request timeout.
+     */
+    @GetMapping("/products/export")
+    public void export(@RequestParam(value = "format", defaultValue = "NDJSON") ExportFormat format,
+                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                       Optional<String> acceptEncoding,
+                       HttpServletResponse response) throws IOException {
+        boolean gzip = acceptEncoding.map(ExportController::acceptsGzip).orElse(false);
+        response.setContentType(format.getMediaType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("products." + format.getExtension())
+                .build()
+                .toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            productExporter.export(response.getOutputStream(), format);
+            return;
+        }
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        GZIPOutputStream outputStream = new GZIPOutputStream(response.getOutputStream(), GZIP_BUFFER_SIZE);
+        productExporter.export(outputStream, format);
+        outputStream.finish();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].strip();
+            boolean refused = parts.length > 1 && parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            if ((name.equals("gzip") || name.equals("*")) && !refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
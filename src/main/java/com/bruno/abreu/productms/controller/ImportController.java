@@ -0,0 +1,76 @@
+package com.bruno.abreu.productms.controller;
+
+import com.bruno.abreu.productms.service.importing.ImportFormat;
+import com.bruno.abreu.productms.service.importing.ImportJob;
+import com.bruno.abreu.productms.service.importing.ImportJobs;
+import com.bruno.abreu.productms.service.importing.ProductImporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@Profile("!reactive")
+public class ImportController {
+
+    private final ProductImporter productImporter;
+    private final ImportJobs importJobs;
+
+    @Autowired
+    public ImportController(ProductImporter productImporter, ImportJobs importJobs) {
+        this.productImporter = productImporter;
+        this.importJobs = importJobs;
+    }
+
+    /**
+     * Reads the body straight from the request stream instead of binding it, so the file is never held in
+     * memory as a whole. The import runs in the background: the response is 202 with the job as it started,
+     * and GET /imports/{jobId} follows it from there.
+     */
+    @PostMapping(value = "/products/import", consumes = "text/csv")
+    public ResponseEntity<ImportJob> importCsv(HttpServletRequest request) throws IOException {
+        return importProducts(request, ImportFormat.CSV);
+    }
+
+    @PostMapping(value = "/products/import", consumes = ProductController.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ImportJob> importNdjson(HttpServletRequest request) throws IOException {
+        return importProducts(request, ImportFormat.NDJSON);
+    }
+
+    @GetMapping("/imports")
+    public ResponseEntity<List<ImportJob>> findAll() {
+        return ResponseEntity.ok(importJobs.findAll());
+    }
+
+    @GetMapping("/imports/{jobId}")
+    public ResponseEntity<ImportJob> findById(@PathVariable UUID jobId) {
+        return importJobs.find(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private ResponseEntity<ImportJob> importProducts(HttpServletRequest request, ImportFormat format) throws IOException {
+        Charset charset = request.getCharacterEncoding() == null
+                ? StandardCharsets.UTF_8
+                : Charset.forName(request.getCharacterEncoding());
+        ImportJob job = productImporter.submit(request.getInputStream(), request.getContentLengthLong(), charset,
+                format);
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/imports/{jobId}")
+                .buildAndExpand(job.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+}
@@ -1,26 +1,66 @@
 package com.bruno.abreu.productms.controller;
 
+import com.bruno.abreu.productms.config.BatchProperties;
+import com.bruno.abreu.productms.config.HttpCacheProperties;
+import com.bruno.abreu.productms.config.PaginationProperties;
+import com.bruno.abreu.productms.exception.InvalidBatch;
 import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductEvent;
+import com.bruno.abreu.productms.model.ProductField;
+import com.bruno.abreu.productms.model.ProductLookup;
+import com.bruno.abreu.productms.model.ProductModification;
+import com.bruno.abreu.productms.model.ProductPatch;
+import com.bruno.abreu.productms.model.ProductVersion;
 import com.bruno.abreu.productms.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/products")
+@Profile("!reactive")
 public class ProductController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final ProductService productService;
+    private final PaginationProperties paginationProperties;
+    private final BatchProperties batchProperties;
+    private final HttpCacheProperties httpCacheProperties;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService,
+                             PaginationProperties paginationProperties,
+                             BatchProperties batchProperties,
+                             HttpCacheProperties httpCacheProperties,
+                             ObjectMapper objectMapper,
+                             Validator validator) {
         this.productService = productService;
+        this.paginationProperties = paginationProperties;
+        this.batchProperties = batchProperties;
+        this.httpCacheProperties = httpCacheProperties;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
     }
 
     @PostMapping
@@ -31,44 +71,218 @@ public class ProductController {
                 .body(newProduct);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<Product>> createAll(@RequestBody List<Product> products) {
+        validateBatch(products, false);
+        List<Product> newProducts = productService.createAll(products);
+        return ResponseEntity
+                .status(HttpStatus.CREATED)
+                .body(newProducts);
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<List<Product>> updateAll(@RequestBody List<Product> products) {
+        validateBatch(products, true);
+        List<Product> updatedProducts = productService.updateAll(products);
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(updatedProducts);
+    }
+
+    @DeleteMapping("/batch")
+    public ResponseEntity<Void> deleteAll(@RequestBody List<UUID> ids) {
+        validateIds(ids);
+        productService.deleteAll(ids);
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .build();
+    }
+
+    /**
+     * Returns the products of up to product.batch.max-size ids in the order they were sent. Ids that do not
+     * exist are listed under missing instead of failing the call.
+     */
+    @PostMapping("/lookup")
+    public ResponseEntity<ProductLookup> findAllById(@RequestBody List<UUID> ids) {
+        validateIds(ids);
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(productService.findAllById(ids));
+    }
+
+    /**
+     * Replaces a product. With {@code If-Match} the update only goes through while the product is still at
+     * that version, otherwise it answers 412.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Product> update(@Valid @RequestBody Product product, @PathVariable("id") UUID id) {
+    public ResponseEntity<Product> update(@Valid @RequestBody Product product,
+                                          @PathVariable("id") UUID id,
+                                          @RequestHeader HttpHeaders headers) {
         product.setId(id);
+        product.setVersion(ConditionalRequests.expectedVersion(headers));
         Product newProduct = productService.update(product);
         return ResponseEntity
                 .status(HttpStatus.OK)
+                .headers(ConditionalRequests.validators(newProduct, headers))
                 .body(newProduct);
     }
 
+    /**
+     * Changes only the fields sent, as in a JSON merge patch without nulls, and keeps the others. If-Match
+     * works as for PUT.
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<Product> patch(@Valid @RequestBody ProductPatch patch,
+                                         @PathVariable("id") UUID id,
+                                         @RequestHeader HttpHeaders headers) {
+        Product newProduct = productService.patch(id, ConditionalRequests.expectedVersion(headers), patch);
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .headers(ConditionalRequests.validators(newProduct, headers))
+                .body(newProduct);
+    }
+
+    /**
+     * Returns a product with its ETag and Last-Modified. Conditional requests are checked against the
+     * product version alone, so a 304 neither loads nor serializes the product.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Product> findById(@PathVariable("id") UUID id) {
+    public ResponseEntity<Product> findById(@PathVariable("id") UUID id, @RequestHeader HttpHeaders headers) {
+        if (ConditionalRequests.isConditional(headers)) {
+            ProductVersion version = productService.findVersionById(id);
+            HttpHeaders validators = ConditionalRequests.validators(version, headers);
+            if (ConditionalRequests.isNotModified(headers, validators)) {
+                return notModified(validators, httpCacheProperties.getFindById());
+            }
+        }
         Product product = productService.findById(id);
         return ResponseEntity
                 .status(HttpStatus.OK)
+                .headers(ConditionalRequests.validators(product, headers))
+                .header(HttpHeaders.CACHE_CONTROL, httpCacheProperties.getFindById())
                 .body(product);
     }
 
     @GetMapping
-    public ResponseEntity<List<Product>> findAll() {
-        List<Product> products = productService.findAll();
+    public ResponseEntity<List<Product>> findAll(
+            @RequestParam(value = "after", required = false) Optional<UUID> after,
+            @RequestParam(value = "limit", required = false) Optional<Integer> limit,
+            @RequestHeader HttpHeaders headers) {
+        int pageSize = paginationProperties.resolveLimit(limit.orElse(null));
+        List<Product> products = productService.findAll(after.orElse(null), pageSize);
+        return page(products, pageSize, ConditionalRequests.validators(products, headers), headers, product -> product);
+    }
+
+    /**
+     * Same page with only the requested fields, for clients that do not need whole products. Only those
+     * columns are read from the database.
+     */
+    @GetMapping(params = {"fields", "!modifiedSince"})
+    public ResponseEntity<List<Map<String, Object>>> findAllFields(
+            @RequestParam("fields") String fields,
+            @RequestParam(value = "after", required = false) Optional<UUID> after,
+            @RequestParam(value = "limit", required = false) Optional<Integer> limit,
+            @RequestHeader HttpHeaders headers) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        int pageSize = paginationProperties.resolveLimit(limit.orElse(null));
+        List<Product> products = productService.findAll(after.orElse(null), pageSize, selected);
+        return page(products, pageSize, ConditionalRequests.validators(products, selected, headers), headers,
+                product -> ProductField.project(product, selected));
+    }
+
+    /**
+     * Products created, updated or deleted at or after {@code modifiedSince}, oldest first, for caches that
+     * sync incrementally instead of reloading the catalog. Pages follow the (modified_at, id) keyset of the
+     * last item through the next Link.
+     */
+    @GetMapping(params = "modifiedSince")
+    public ResponseEntity<List<ProductModification>> findModified(
+            @RequestParam("modifiedSince") Instant modifiedSince,
+            @RequestParam(value = "after", required = false) Optional<UUID> after,
+            @RequestParam(value = "limit", required = false) Optional<Integer> limit) {
+        int pageSize = paginationProperties.resolveLimit(limit.orElse(null));
+        List<ProductModification> modifications =
+                productService.findModified(modifiedSince, after.orElse(null), pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (modifications.size() == pageSize) {
+            ProductModification last = modifications.get(modifications.size() - 1);
+            String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("modifiedSince", last.getModifiedAt())
+                    .replaceQueryParam("after", last.getId())
+                    .replaceQueryParam("limit", pageSize)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+        }
+        return response.body(modifications);
+    }
+
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        ObjectWriter writer = objectMapper.writerFor(Product.class);
+        StreamingResponseBody body = outputStream -> productService.streamAll(product -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(product));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
         return ResponseEntity
                 .status(HttpStatus.OK)
-                .body(products);
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    /**
+     * Changes published after the {@code since} offset, oldest first, for consumers that follow the catalog
+     * incrementally instead of scanning it. The next page continues from the offset of the last change.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<List<ProductEvent>> findChanges(
+            @RequestParam(value = "since", required = false) Optional<Long> since,
+            @RequestParam(value = "limit", required = false) Optional<Integer> limit) {
+        int pageSize = paginationProperties.resolveLimit(limit.orElse(null));
+        List<ProductEvent> changes = productService.findChanges(since.orElse(null), pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (changes.size() == pageSize) {
+            long next = changes.get(changes.size() - 1).getOffset();
+            String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("since", next)
+                    .replaceQueryParam("limit", pageSize)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+        }
+        return response.body(changes);
     }
 
     @GetMapping("/search")
     public ResponseEntity<List<Product>> findBySearchParameters(
             @RequestParam(value = "q", required = false) Optional<String> q,
-            @RequestParam(value = "min_price", required = false) Optional<Double> minPrice,
-            @RequestParam(value = "max_price", required = false) Optional<Double> maxPrice) {
+            @RequestParam(value = "min_price", required = false) Optional<BigDecimal> minPrice,
+            @RequestParam(value = "max_price", required = false) Optional<BigDecimal> maxPrice,
+            @RequestHeader HttpHeaders headers) {
         List<Product> products = productService.findBySearchParameters(
-                q.orElse(""),
-                minPrice.orElse(Double.MIN_VALUE),
-                maxPrice.orElse(Double.MAX_VALUE));
-        return ResponseEntity
-                .status(HttpStatus.OK)
-                .body(products);
+                q.orElse(null),
+                minPrice.orElse(null),
+                maxPrice.orElse(null));
+        return search(products, ConditionalRequests.validators(products, headers), headers, product -> product);
+    }
 
+    @GetMapping(value = "/search", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> findBySearchParametersFields(
+            @RequestParam("fields") String fields,
+            @RequestParam(value = "q", required = false) Optional<String> q,
+            @RequestParam(value = "min_price", required = false) Optional<BigDecimal> minPrice,
+            @RequestParam(value = "max_price", required = false) Optional<BigDecimal> maxPrice,
+            @RequestHeader HttpHeaders headers) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        List<Product> products = productService.findBySearchParameters(
+                q.orElse(null),
+                minPrice.orElse(null),
+                maxPrice.orElse(null),
+                selected);
+        return search(products, ConditionalRequests.validators(products, selected, headers), headers,
+                product -> ProductField.project(product, selected));
     }
 
     @DeleteMapping("/{id}")
@@ -78,4 +292,90 @@ public class ProductController {
                 .status(HttpStatus.OK)
                 .build();
     }
+
+    private <T> ResponseEntity<List<T>> page(List<Product> products,
+                                             int pageSize,
+                                             HttpHeaders validators,
+                                             HttpHeaders headers,
+                                             Function<Product, T> representation) {
+        if (ConditionalRequests.isNotModified(headers, validators)) {
+            return notModified(validators, httpCacheProperties.getFindAll());
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK)
+                .headers(validators)
+                .header(HttpHeaders.CACHE_CONTROL, httpCacheProperties.getFindAll());
+        if (products.size() == pageSize) {
+            UUID next = products.get(products.size() - 1).getId();
+            String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", next)
+                    .replaceQueryParam("limit", pageSize)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+        }
+        return response.body(products.stream().map(representation).collect(Collectors.toList()));
+    }
+
+    private <T> ResponseEntity<List<T>> search(List<Product> products,
+                                               HttpHeaders validators,
+                                               HttpHeaders headers,
+                                               Function<Product, T> representation) {
+        if (ConditionalRequests.isNotModified(headers, validators)) {
+            return notModified(validators, httpCacheProperties.getSearch());
+        }
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .headers(validators)
+                .header(HttpHeaders.CACHE_CONTROL, httpCacheProperties.getSearch())
+                .body(products.stream().map(representation).collect(Collectors.toList()));
+    }
+
+    private static <T> ResponseEntity<T> notModified(HttpHeaders validators, String cacheControl) {
+        return ResponseEntity
+                .status(HttpStatus.NOT_MODIFIED)
+                .headers(validators)
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                .build();
+    }
+
+    private void validateBatchSize(List<?> items) {
+        if (items.isEmpty() || items.size() > batchProperties.getMaxSize()) {
+            throw new InvalidBatch("Batch must contain between 1 and " + batchProperties.getMaxSize() + " items");
+        }
+    }
+
+    private void validateIds(List<UUID> ids) {
+        validateBatchSize(ids);
+        Map<Integer, List<String>> errors = new TreeMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == null) {
+                errors.put(i, List.of("Id must not be null"));
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new InvalidBatch("Batch contains invalid items", errors);
+        }
+    }
+
+    private void validateBatch(List<Product> products, boolean requireId) {
+        validateBatchSize(products);
+        Map<Integer, List<String>> errors = new TreeMap<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            List<String> messages = new ArrayList<>();
+            if (product == null) {
+                messages.add("Product must not be null");
+            } else {
+                validator.validate(product).forEach(violation -> messages.add(violation.getMessage()));
+                if (requireId && product.getId() == null) {
+                    messages.add("Id must not be null");
+                }
+            }
+            if (!messages.isEmpty()) {
+                errors.put(i, messages);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new InvalidBatch("Batch contains invalid items", errors);
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package com.bruno.abreu.productms.controller;
+
+import com.bruno.abreu.productms.config.PaginationProperties;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.service.ReactiveProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Non-blocking version of {@link ProductController}, served by WebFlux when the reactive profile is active.
+ */
+@RestController
+@RequestMapping("/products")
+@Profile("reactive")
+public class ReactiveProductController {
+
+    private final ReactiveProductService productService;
+    private final PaginationProperties paginationProperties;
+
+    @Autowired
+    public ReactiveProductController(ReactiveProductService productService,
+                                     PaginationProperties paginationProperties) {
+        this.productService = productService;
+        this.paginationProperties = paginationProperties;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Product>> create(@Valid @RequestBody Product product) {
+        return productService.create(product)
+                .map(newProduct -> ResponseEntity
+                        .status(HttpStatus.CREATED)
+                        .body(newProduct));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Product>> update(@Valid @RequestBody Product product, @PathVariable("id") UUID id) {
+        product.setId(id);
+        return productService.update(product)
+                .map(newProduct -> ResponseEntity
+                        .status(HttpStatus.OK)
+                        .body(newProduct));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Product>> findById(@PathVariable("id") UUID id) {
+        return productService.findById(id)
+                .map(product -> ResponseEntity
+                        .status(HttpStatus.OK)
+                        .body(product));
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<Product>>> findAll(
+            @RequestParam(value = "after", required = false) Optional<UUID> after,
+            @RequestParam(value = "limit", required = false) Optional<Integer> limit,
+            ServerHttpRequest request) {
+        int pageSize = paginationProperties.resolveLimit(limit.orElse(null));
+        return productService.findAll(after.orElse(null), pageSize)
+                .collectList()
+                .map(products -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+                    if (products.size() == pageSize) {
+                        UUID next = products.get(products.size() - 1).getId();
+                        String nextPage = UriComponentsBuilder.fromHttpRequest(request)
+                                .replaceQueryParam("after", next)
+                                .replaceQueryParam("limit", pageSize)
+                                .toUriString();
+                        response.header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+                    }
+                    return response.body(products);
+                });
+    }
+
+    @GetMapping(produces = ProductController.APPLICATION_NDJSON_VALUE)
+    public Flux<Product> streamAll() {
+        return productService.streamAll();
+    }
+
+    @GetMapping("/search")
+    public Flux<Product> findBySearchParameters(
+            @RequestParam(value = "q", required = false) Optional<String> q,
+            @RequestParam(value = "min_price", required = false) Optional<BigDecimal> minPrice,
+            @RequestParam(value = "max_price", required = false) Optional<BigDecimal> maxPrice) {
+        return productService.findBySearchParameters(
+                q.orElse(null),
+                minPrice.orElse(null),
+                maxPrice.orElse(null));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteById(@PathVariable("id") UUID id) {
+        return productService.delete(id)
+                .then(Mono.just(ResponseEntity
+                        .status(HttpStatus.OK)
+                        .build()));
+    }
+}
@@ -0,0 +1,7 @@
+package com.bruno.abreu.productms.exception;
+
+public class ChangesExpired extends RuntimeException {
+    public ChangesExpired() {
+        super("Changes since this offset are no longer retained, reload the products and start over");
+    }
+}
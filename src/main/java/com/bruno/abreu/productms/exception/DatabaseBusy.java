@@ -0,0 +1,7 @@
+package com.bruno.abreu.productms.exception;
+
+public class DatabaseBusy extends RuntimeException {
+    public DatabaseBusy() {
+        super("Database is busy, try again later");
+    }
+}
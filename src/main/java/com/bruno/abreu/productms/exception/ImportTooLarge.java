@@ -0,0 +1,7 @@
+package com.bruno.abreu.productms.exception;
+
+public class ImportTooLarge extends RuntimeException {
+    public ImportTooLarge(long maxBytes) {
+        super("Import body is larger than " + maxBytes + " bytes");
+    }
+}
@@ -0,0 +1,25 @@
+package com.bruno.abreu.productms.exception;
+
+import java.util.List;
+import java.util.Map;
+
+public class InvalidBatch extends RuntimeException {
+
+    private final Map<Integer, List<String>> errors;
+
+    public InvalidBatch(String message) {
+        this(message, Map.of());
+    }
+
+    public InvalidBatch(String message, Map<Integer, List<String>> errors) {
+        super(message);
+        this.errors = errors;
+    }
+
+    /**
+     * Validation messages of each rejected item, keyed by its position in the batch.
+     */
+    public Map<Integer, List<String>> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,7 @@
+package com.bruno.abreu.productms.exception;
+
+public class InvalidFields extends RuntimeException {
+    public InvalidFields(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.bruno.abreu.productms.exception;
+
+public class InvalidImport extends RuntimeException {
+    public InvalidImport(String message) {
+        super(message);
+    }
+}
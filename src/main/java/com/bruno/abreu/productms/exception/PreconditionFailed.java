@@ -0,0 +1,7 @@
+package com.bruno.abreu.productms.exception;
+
+public class PreconditionFailed extends RuntimeException {
+    public PreconditionFailed() {
+        super("Product was modified, reload it and try again");
+    }
+}
@@ -1,8 +1,17 @@
 package com.bruno.abreu.productms.exception.handler;
 
+import com.bruno.abreu.productms.exception.ChangesExpired;
+import com.bruno.abreu.productms.exception.DatabaseBusy;
+import com.bruno.abreu.productms.exception.InvalidBatch;
+import com.bruno.abreu.productms.exception.InvalidFields;
+import com.bruno.abreu.productms.exception.ImportTooLarge;
+import com.bruno.abreu.productms.exception.InvalidImport;
+import com.bruno.abreu.productms.exception.PreconditionFailed;
 import com.bruno.abreu.productms.exception.ProductNotFound;
+import org.springframework.context.annotation.Profile;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +27,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 @ControllerAdvice
+@Profile("!reactive")
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
     @Override
@@ -41,11 +51,90 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(body, headers, status);
     }
 
+    @ExceptionHandler(value = InvalidBatch.class)
+    public ResponseEntity<Object> handleInvalidBatch(InvalidBatch ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status_code", HttpStatus.BAD_REQUEST.value());
+        body.put("message", ex.getMessage());
+
+        //One entry per rejected item
+        List<Map<String, Object>> errors = ex.getErrors()
+                .entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(error -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("index", error.getKey());
+                    item.put("message", error.getValue().stream().sorted().collect(Collectors.toList()).toString());
+                    return item;
+                })
+                .collect(Collectors.toList());
+        body.put("errors", errors);
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
     @ExceptionHandler(value = ProductNotFound.class)
     public ResponseEntity handleProductNotFound(){
         return ResponseEntity.notFound().build();
     }
 
+    @ExceptionHandler(value = {PreconditionFailed.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<Object> handlePreconditionFailed() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status_code", HttpStatus.PRECONDITION_FAILED.value());
+        body.put("message", new PreconditionFailed().getMessage());
+
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(body);
+    }
+
+    @ExceptionHandler(value = DatabaseBusy.class)
+    public ResponseEntity<Object> handleDatabaseBusy(DatabaseBusy ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status_code", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body);
+    }
+
+    @ExceptionHandler(value = ChangesExpired.class)
+    public ResponseEntity<Object> handleChangesExpired(ChangesExpired ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status_code", HttpStatus.GONE.value());
+        body.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.GONE).body(body);
+    }
+
+    @ExceptionHandler(value = InvalidFields.class)
+    public ResponseEntity<Object> handleInvalidFields(InvalidFields ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status_code", HttpStatus.BAD_REQUEST.value());
+        body.put("message", ex.getMessage());
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(value = InvalidImport.class)
+    public ResponseEntity<Object> handleInvalidImport(InvalidImport ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status_code", HttpStatus.BAD_REQUEST.value());
+        body.put("message", ex.getMessage());
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(value = ImportTooLarge.class)
+    public ResponseEntity<Object> handleImportTooLarge(ImportTooLarge ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status_code", HttpStatus.PAYLOAD_TOO_LARGE.value());
+        body.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(body);
+    }
+
     @ExceptionHandler(value = EmptyResultDataAccessException.class)
     public ResponseEntity handleEmptyResultDataAccessException(){
         return ResponseEntity.notFound().build();
@@ -0,0 +1,46 @@
+package com.bruno.abreu.productms.exception.handler;
+
+import com.bruno.abreu.productms.controller.ReactiveProductController;
+import com.bruno.abreu.productms.exception.ProductNotFound;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Same error responses as {@link GlobalExceptionHandler}, for the WebFlux controllers.
+ */
+@ControllerAdvice(assignableTypes = ReactiveProductController.class)
+@Profile("reactive")
+public class ReactiveExceptionHandler {
+
+    @ExceptionHandler(value = WebExchangeBindException.class)
+    public ResponseEntity<Object> handleWebExchangeBindException(WebExchangeBindException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status_code", HttpStatus.BAD_REQUEST.value());
+
+        //Get all errors
+        List<String> errors = ex.getFieldErrors()
+                .stream()
+                .map(DefaultMessageSourceResolvable::getDefaultMessage)
+                .sorted()
+                .collect(Collectors.toList());
+
+        body.put("message", errors.toString());
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(value = ProductNotFound.class)
+    public ResponseEntity handleProductNotFound() {
+        return ResponseEntity.notFound().build();
+    }
+}
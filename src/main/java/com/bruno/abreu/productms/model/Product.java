@@ -1,35 +1,91 @@
 package com.bruno.abreu.productms.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Type;
+import org.hibernate.annotations.Where;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
+import javax.validation.constraints.Digits;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.UUID;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_product_price", columnList = "price"),
+        @Index(name = "idx_product_name", columnList = "name"),
+        @Index(name = "idx_product_updated_at", columnList = "updatedAt, id")
+})
+@EntityListeners(AuditingEntityListener.class)
+@Where(clause = "deleted_at is null")
 public class Product {
 
+    /**
+     * Prices are stored exactly as DECIMAL(12,2), that is in cents.
+     */
+    public static final int PRICE_PRECISION = 12;
+    public static final int PRICE_SCALE = 2;
+
     @Id
-    @GeneratedValue
-    @Type(type="uuid-char")
+    @GeneratedValue(generator = "product-id")
+    @GenericGenerator(name = "product-id", strategy = "com.bruno.abreu.productms.model.id.ProductIdGenerator")
+    @Type(type = "uuid-binary")
+    @Column(columnDefinition = "binary(16)")
     private UUID id;
     @NotBlank(message = "Name must not be blank")
+    @Size(max = 255, message = "Name must have at most 255 characters")
+    @Column(nullable = false)
     private String name;
     @NotBlank(message = "Description must not be blank")
+    @Size(max = 2000, message = "Description must have at most 2000 characters")
+    @Column(nullable = false, length = 2000)
     private String description;
     @Positive(message = "Price must be greater than 0")
     @NotNull(message = "Price must not be null")
-    private Double price;
+    @Digits(integer = PRICE_PRECISION - PRICE_SCALE, fraction = PRICE_SCALE,
+            message = "Price must have at most 10 integer digits and 2 decimal places")
+    @Column(nullable = false, precision = PRICE_PRECISION, scale = PRICE_SCALE)
+    private BigDecimal price;
+    @Version
+    @Column(nullable = false)
+    @JsonIgnore
+    private Long version;
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    @JsonIgnore
+    private Instant createdAt;
+    @LastModifiedDate
+    @Column(nullable = false)
+    @JsonIgnore
+    private Instant updatedAt;
+    /**
+     * Set by soft deletes, which keep the row as the tombstone of the product. Rows with it set are left out
+     * of every query on the entity; updatedAt is set to the same instant, so the (updated_at, id) index also
+     * serves the keyset over deleted rows.
+     */
+    @JsonIgnore
+    private Instant deletedAt;
 }
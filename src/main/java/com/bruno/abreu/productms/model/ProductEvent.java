@@ -0,0 +1,42 @@
+package com.bruno.abreu.productms.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A change to a product, recorded in the same transaction as the change itself. The offset is handed out by
+ * the relay once the event is committed, so offsets grow in the order events become visible.
+ */
+@Value
+@Builder(toBuilder = true)
+public class ProductEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    @JsonIgnore
+    Long id;
+    Long offset;
+    Type type;
+    @JsonProperty("product_id")
+    UUID productId;
+    /**
+     * Product version after the change, null for deletions.
+     */
+    Long version;
+    @JsonProperty("occurred_at")
+    Instant occurredAt;
+    /**
+     * The product as JSON after the change, null for deletions.
+     */
+    @JsonRawValue
+    @JsonProperty("product")
+    String payload;
+}
@@ -0,0 +1,86 @@
+package com.bruno.abreu.productms.model;
+
+import com.bruno.abreu.productms.exception.InvalidFields;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The product fields a client can ask for with {@code fields=}. Each name is both the JSON property and the
+ * entity attribute, so a projection can select just those columns.
+ */
+public enum ProductField {
+
+    ID("id", Product::getId, (product, value) -> product.setId((UUID) value)),
+    NAME("name", Product::getName, (product, value) -> product.setName((String) value)),
+    DESCRIPTION("description", Product::getDescription, (product, value) -> product.setDescription((String) value)),
+    PRICE("price", Product::getPrice, (product, value) -> product.setPrice((BigDecimal) value));
+
+    private static final String AVAILABLE = Arrays.stream(values())
+            .map(ProductField::getName)
+            .collect(Collectors.joining(", "));
+
+    private final String name;
+    private final Function<Product, Object> getter;
+    private final BiConsumer<Product, Object> setter;
+
+    ProductField(String name, Function<Product, Object> getter, BiConsumer<Product, Object> setter) {
+        this.name = name;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object get(Product product) {
+        return getter.apply(product);
+    }
+
+    public void set(Product product, Object value) {
+        setter.accept(product, value);
+    }
+
+    /**
+     * Parses a comma separated list of field names, ignoring case and surrounding spaces.
+     *
+     * @throws InvalidFields if the list is empty or names a field that does not exist
+     */
+    public static Set<ProductField> parse(String fields) {
+        Set<ProductField> parsed = EnumSet.noneOf(ProductField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.strip().toLowerCase(Locale.ROOT);
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            parsed.add(Arrays.stream(values())
+                    .filter(field -> field.name.equals(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new InvalidFields(
+                            "Unknown field '" + name.strip() + "', the available fields are " + AVAILABLE)));
+        }
+        if (parsed.isEmpty()) {
+            throw new InvalidFields("fields must name at least one of " + AVAILABLE);
+        }
+        return parsed;
+    }
+
+    /**
+     * The requested fields of the product, in declaration order.
+     */
+    public static Map<String, Object> project(Product product, Set<ProductField> fields) {
+        Map<String, Object> projection = new LinkedHashMap<>();
+        fields.forEach(field -> projection.put(field.name, field.get(product)));
+        return projection;
+    }
+}
@@ -0,0 +1,17 @@
+package com.bruno.abreu.productms.model;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of looking up many products by id: the ones found, in the order they were asked for, and the ids
+ * that do not exist.
+ */
+@Value
+public class ProductLookup {
+
+    List<Product> products;
+    List<UUID> missing;
+}
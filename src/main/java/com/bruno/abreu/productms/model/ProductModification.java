@@ -0,0 +1,49 @@
+package com.bruno.abreu.productms.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * A product as it is after its last change, or its tombstone when the change deleted it. Ordered by
+ * modification time and then by id, the order incremental sync pages in.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductModification {
+
+    /**
+     * Ids compare as their BINARY(16) columns do on the database, byte by byte unsigned.
+     */
+    public static final Comparator<ProductModification> ORDER = Comparator
+            .comparing(ProductModification::getModifiedAt)
+            .thenComparing(ProductModification::getId, ProductModification::compareIds);
+
+    UUID id;
+    String name;
+    String description;
+    BigDecimal price;
+    @JsonProperty("modified_at")
+    Instant modifiedAt;
+    boolean deleted;
+
+    public static ProductModification of(Product product) {
+        return new ProductModification(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getUpdatedAt(), false);
+    }
+
+    public static ProductModification of(ProductTombstone tombstone) {
+        return new ProductModification(tombstone.getId(), null, null, null, tombstone.getDeletedAt(), true);
+    }
+
+    private static int compareIds(UUID first, UUID second) {
+        int compare = Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits());
+        return compare != 0 ? compare
+                : Long.compareUnsigned(first.getLeastSignificantBits(), second.getLeastSignificantBits());
+    }
+}
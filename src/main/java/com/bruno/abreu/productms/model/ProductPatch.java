@@ -0,0 +1,74 @@
+package com.bruno.abreu.productms.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Digits;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import java.math.BigDecimal;
+
+import static com.bruno.abreu.productms.model.Product.PRICE_PRECISION;
+import static com.bruno.abreu.productms.model.Product.PRICE_SCALE;
+
+/**
+ * Changes to the fields of a product. The fields left null keep their current value, so a patch only
+ * touches the columns it sets; the ones it sets follow the same rules as {@link Product}.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductPatch {
+
+    private static final String NOT_BLANK = "(?s).*\\S.*";
+
+    @Pattern(regexp = NOT_BLANK, message = "Name must not be blank")
+    @Size(max = 255, message = "Name must have at most 255 characters")
+    private String name;
+    @Pattern(regexp = NOT_BLANK, message = "Description must not be blank")
+    @Size(max = 2000, message = "Description must have at most 2000 characters")
+    private String description;
+    @Positive(message = "Price must be greater than 0")
+    @Digits(integer = PRICE_PRECISION - PRICE_SCALE, fraction = PRICE_SCALE,
+            message = "Price must have at most 10 integer digits and 2 decimal places")
+    private BigDecimal price;
+
+    /**
+     * A patch setting every field, which replaces the product as a whole.
+     */
+    public static ProductPatch of(Product product) {
+        return new ProductPatch(product.getName(), product.getDescription(), product.getPrice());
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return name == null && description == null && price == null;
+    }
+
+    @JsonIgnore
+    public boolean isComplete() {
+        return name != null && description != null && price != null;
+    }
+
+    /**
+     * A copy of the product with the fields this patch sets.
+     */
+    public Product applyTo(Product product) {
+        Product.ProductBuilder patched = product.toBuilder();
+        if (name != null) {
+            patched.name(name);
+        }
+        if (description != null) {
+            patched.description(description);
+        }
+        if (price != null) {
+            patched.price(price);
+        }
+        return patched.build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.bruno.abreu.productms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Type;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Marks a deleted product, so incremental sync can report the deletion.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_product_tombstone_deleted_at", columnList = "deletedAt, id"))
+public class ProductTombstone implements Persistable<UUID> {
+
+    @Id
+    @Type(type = "uuid-binary")
+    @Column(columnDefinition = "binary(16)")
+    private UUID id;
+    @Column(nullable = false)
+    private Instant deletedAt;
+
+    /**
+     * Tombstones are only ever inserted, so saving one never needs to look it up first.
+     */
+    @Override
+    @Transient
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,20 @@
+package com.bruno.abreu.productms.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * The part of a product that changes on every write, enough to answer conditional requests without
+ * loading the whole row.
+ */
+@Value
+public class ProductVersion {
+
+    Long version;
+    Instant updatedAt;
+
+    public static ProductVersion of(Product product) {
+        return new ProductVersion(product.getVersion(), product.getUpdatedAt());
+    }
+}
@@ -0,0 +1,34 @@
+package com.bruno.abreu.productms.model.id;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+/**
+ * Generates product ids in memory, so inserts can still be batched, using the {@link ProductIdStrategy}
+ * named by the {@value #STRATEGY_SETTING} Hibernate setting ({@code spring.jpa.properties.product.id-strategy}).
+ */
+public class ProductIdGenerator implements IdentifierGenerator {
+
+    public static final String STRATEGY_SETTING = "product.id-strategy";
+
+    private ProductIdStrategy strategy = ProductIdStrategy.TIME_ORDERED;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        String setting = serviceRegistry.getService(ConfigurationService.class)
+                .getSetting(STRATEGY_SETTING, StandardConverters.STRING, strategy.name());
+        strategy = ProductIdStrategy.fromSetting(setting);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return strategy.generate();
+    }
+}
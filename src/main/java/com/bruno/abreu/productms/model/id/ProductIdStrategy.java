@@ -0,0 +1,31 @@
+package com.bruno.abreu.productms.model.id;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+public enum ProductIdStrategy {
+
+    /**
+     * Random version 4 UUIDs, as generated by a plain {@code @GeneratedValue}.
+     */
+    RANDOM(UUID::randomUUID),
+
+    /**
+     * Version 7 UUIDs, ordered by creation time.
+     */
+    TIME_ORDERED(TimeOrderedUuid::generate);
+
+    private final Supplier<UUID> generator;
+
+    ProductIdStrategy(Supplier<UUID> generator) {
+        this.generator = generator;
+    }
+
+    public UUID generate() {
+        return generator.get();
+    }
+
+    public static ProductIdStrategy fromSetting(String setting) {
+        return valueOf(setting.trim().replace('-', '_').toUpperCase());
+    }
+}
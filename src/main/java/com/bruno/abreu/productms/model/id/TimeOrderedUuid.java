@@ -0,0 +1,27 @@
+package com.bruno.abreu.productms.model.id;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Version 7 UUIDs (RFC 9562): the first 48 bits are the unix time in milliseconds, so ids generated close
+ * in time are close in the primary key index and new rows are appended instead of scattered.
+ */
+public final class TimeOrderedUuid {
+
+    private static final Random RANDOM = new SecureRandom();
+
+    private TimeOrderedUuid() {
+    }
+
+    public static UUID generate() {
+        return generate(System.currentTimeMillis());
+    }
+
+    static UUID generate(long epochMillis) {
+        long mostSigBits = (epochMillis << 16) | 0x7000L | (RANDOM.nextInt() & 0x0FFFL);
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
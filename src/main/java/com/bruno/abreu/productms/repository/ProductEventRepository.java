@@ -0,0 +1,126 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.ProductEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The product_event outbox table. Written with JDBC batches in the caller's transaction, which also works with
+ * the auto increment id that keeps Hibernate from batching inserts.
+ */
+@Repository
+@Profile("!reactive")
+public class ProductEventRepository {
+
+    private static final String SELECT =
+            "select id, event_offset, type, product_id, version, occurred_at, payload from product_event ";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ProductEventRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void appendAll(List<ProductEvent> events) {
+        SqlParameterSource[] parameters = events.stream()
+                .map(event -> new MapSqlParameterSource()
+                        .addValue("type", event.getType().name())
+                        .addValue("productId", UuidBytes.toBytes(event.getProductId()))
+                        .addValue("version", event.getVersion())
+                        .addValue("occurredAt", toLocalDateTime(event.getOccurredAt()))
+                        .addValue("payload", event.getPayload()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("insert into product_event (type, product_id, version, occurred_at, payload) " +
+                "values (:type, :productId, :version, :occurredAt, :payload)", parameters);
+    }
+
+    /**
+     * Locks the relay cursor until the current transaction ends, so a single relay hands out offsets at a
+     * time, and returns the last offset handed out.
+     */
+    public long lockLastOffset() {
+        Long lastOffset = jdbcTemplate.queryForObject(
+                "select last_offset from product_event_cursor where id = 1 for update",
+                new MapSqlParameterSource(), Long.class);
+        return lastOffset == null ? 0 : lastOffset;
+    }
+
+    public void updateLastOffset(long lastOffset) {
+        jdbcTemplate.update("update product_event_cursor set last_offset = :lastOffset where id = 1",
+                new MapSqlParameterSource("lastOffset", lastOffset));
+    }
+
+    /**
+     * Committed events without an offset yet, in the order they were recorded.
+     */
+    public List<ProductEvent> findUnpublished(int limit) {
+        return jdbcTemplate.query(SELECT + "where event_offset is null order by id limit :limit",
+                new MapSqlParameterSource("limit", limit), ProductEventRepository::toEvent);
+    }
+
+    public void assignOffsets(List<ProductEvent> events) {
+        SqlParameterSource[] parameters = events.stream()
+                .map(event -> new MapSqlParameterSource()
+                        .addValue("id", event.getId())
+                        .addValue("offset", event.getOffset()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("update product_event set event_offset = :offset where id = :id", parameters);
+    }
+
+    public List<ProductEvent> findAfter(long offset, int limit) {
+        return jdbcTemplate.query(SELECT + "where event_offset > :offset order by event_offset limit :limit",
+                new MapSqlParameterSource()
+                        .addValue("offset", offset)
+                        .addValue("limit", limit),
+                ProductEventRepository::toEvent);
+    }
+
+    public Optional<Long> findFirstOffset() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject("select min(event_offset) from product_event",
+                new MapSqlParameterSource(), Long.class));
+    }
+
+    /**
+     * Deletes the published events that occurred before the given instant.
+     */
+    public int deletePublishedBefore(Instant before) {
+        Long lastOffset = jdbcTemplate.queryForObject(
+                "select max(event_offset) from product_event where occurred_at < :before",
+                new MapSqlParameterSource("before", toLocalDateTime(before)), Long.class);
+        if (lastOffset == null) {
+            return 0;
+        }
+        return jdbcTemplate.update("delete from product_event where event_offset <= :lastOffset",
+                new MapSqlParameterSource("lastOffset", lastOffset));
+    }
+
+    private static ProductEvent toEvent(ResultSet resultSet, int rowNum) throws SQLException {
+        return ProductEvent.builder()
+                .id(resultSet.getLong("id"))
+                .offset(resultSet.getObject("event_offset", Long.class))
+                .type(ProductEvent.Type.valueOf(resultSet.getString("type")))
+                .productId(UuidBytes.toUuid(resultSet.getBytes("product_id")))
+                .version(resultSet.getObject("version", Long.class))
+                .occurredAt(resultSet.getObject("occurred_at", LocalDateTime.class).toInstant(ZoneOffset.UTC))
+                .payload(resultSet.getString("payload"))
+                .build();
+    }
+
+    /**
+     * occurred_at is stored in UTC, like the timestamps Hibernate writes.
+     */
+    private static LocalDateTime toLocalDateTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
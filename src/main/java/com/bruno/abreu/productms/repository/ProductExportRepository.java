@@ -0,0 +1,44 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.Product;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads the catalog for the export in keyset pages ordered by id. Rows are mapped straight to products
+ * without going through the persistence context, so memory is bounded by the page size.
+ */
+@Repository
+@Profile("!reactive")
+public class ProductExportRepository {
+
+    private static final String SELECT = "select id, name, description, price from product where deleted_at is null ";
+    private static final RowMapper<Product> PRODUCT_MAPPER = (resultSet, rowNum) -> Product.builder()
+            .id(UuidBytes.toUuid(resultSet.getBytes("id")))
+            .name(resultSet.getString("name"))
+            .description(resultSet.getString("description"))
+            .price(resultSet.getBigDecimal("price"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductExportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Up to {@code limit} products in id order, after the {@code after} id when it is not null.
+     */
+    public List<Product> findPage(UUID after, int limit) {
+        if (after == null) {
+            return jdbcTemplate.query(SELECT + "order by id limit ?", PRODUCT_MAPPER, limit);
+        }
+        return jdbcTemplate.query(SELECT + "and id > ? order by id limit ?", PRODUCT_MAPPER,
+                UuidBytes.toBytes(after), limit);
+    }
+}
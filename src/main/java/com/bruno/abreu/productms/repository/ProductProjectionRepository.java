@@ -0,0 +1,27 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductField;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Queries that only select some columns. The products they return are detached and carry just the
+ * requested fields, plus id and version so they can still be paginated and given an ETag.
+ */
+public interface ProductProjectionRepository {
+
+    /**
+     * Up to {@code limit} products ordered by id, after the {@code after} id when it is not null.
+     */
+    List<Product> findAllProjected(Set<ProductField> fields, UUID after, int limit);
+
+    /**
+     * Same filters as {@link ProductSearchRepository#findBySearchParameters}.
+     */
+    List<Product> findBySearchParametersProjected(String q, BigDecimal minPrice, BigDecimal maxPrice,
+                                                  Set<ProductField> fields);
+}
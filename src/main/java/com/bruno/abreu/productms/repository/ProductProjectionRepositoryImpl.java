@@ -0,0 +1,80 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductField;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+class ProductProjectionRepositoryImpl implements ProductProjectionRepository {
+
+    private static final String ID = ProductField.ID.getName();
+    private static final String VERSION = "version";
+
+    private final EntityManager entityManager;
+
+    ProductProjectionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Product> findAllProjected(Set<ProductField> fields, UUID after, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        query.multiselect(selections(root, fields));
+        if (after != null) {
+            query.where(builder.greaterThan(root.get(ID), after));
+        }
+        query.orderBy(builder.asc(root.get(ID)));
+        return toProducts(entityManager.createQuery(query).setMaxResults(limit).getResultList(), fields);
+    }
+
+    @Override
+    public List<Product> findBySearchParametersProjected(String q, BigDecimal minPrice, BigDecimal maxPrice,
+                                                         Set<ProductField> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        query.multiselect(selections(root, fields));
+        Predicate predicate = ProductSpecifications.search(q, minPrice, maxPrice).toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return toProducts(entityManager.createQuery(query).getResultList(), fields);
+    }
+
+    private static List<Selection<?>> selections(Root<Product> root, Set<ProductField> fields) {
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get(ID).alias(ID));
+        selections.add(root.get(VERSION).alias(VERSION));
+        fields.stream()
+                .filter(field -> field != ProductField.ID)
+                .forEach(field -> selections.add(root.get(field.getName()).alias(field.getName())));
+        return selections;
+    }
+
+    private static List<Product> toProducts(List<Tuple> tuples, Set<ProductField> fields) {
+        return tuples.stream().map(tuple -> {
+            Product product = Product.builder()
+                    .id(tuple.get(ID, UUID.class))
+                    .version(tuple.get(VERSION, Long.class))
+                    .build();
+            fields.stream()
+                    .filter(field -> field != ProductField.ID)
+                    .forEach(field -> field.set(product, tuple.get(field.getName())));
+            return product;
+        }).collect(Collectors.toList());
+    }
+}
@@ -1,20 +1,64 @@
 package com.bruno.abreu.productms.repository;
 
 import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductVersion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface ProductRepository extends CrudRepository<Product, UUID>, ProductSearchRepository,
+        ProductProjectionRepository, ProductUpdateRepository {
+
+    @Query("select new com.bruno.abreu.productms.model.ProductVersion(p.version, p.updatedAt) " +
+            "from Product p where p.id = :id")
+    Optional<ProductVersion> findVersionById(@Param("id") UUID id);
+
+    List<Product> findAllByOrderById(Pageable pageable);
+
+    /**
+     * Products modified after the (since, after) keyset position and before {@code until}, ordered by
+     * (updatedAt, id) so the (updated_at, id) index serves both the range and the order.
+     */
+    @Query("select p from Product p where p.updatedAt >= :since and p.updatedAt < :until " +
+            "and (p.updatedAt > :since or p.id > :after) order by p.updatedAt, p.id")
+    List<Product> findModifiedAfter(@Param("since") Instant since,
+                                    @Param("after") UUID after,
+                                    @Param("until") Instant until,
+                                    Pageable pageable);
+
+    List<Product> findByIdGreaterThanOrderById(UUID after, Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select p from Product p order by p.id")
+    Stream<Product> streamAll();
 
-public interface ProductRepository extends CrudRepository<Product, UUID> {
     @Override
-    List<Product> findAll();
+    List<Product> findAllById(Iterable<UUID> ids);
 
-    @Query("select p from Product p " +
-            "where (p.name like %:q% or p.description like %:q%) " +
-            "and p.price between :minPrice and :maxPrice")
-    List<Product> findBySearchParameters(@Param("q") String q, @Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice);
+    @Modifying
+    @Query("delete from Product p where p.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<UUID> ids);
 
+    /**
+     * Marks the products as deleted, moving them to the next version so a write still holding the previous
+     * one fails. Returns how many of them were not deleted already.
+     */
+    @Modifying
+    @Query("update Product p set p.deletedAt = :deletedAt, p.updatedAt = :deletedAt, p.version = p.version + 1 " +
+            "where p.id in :ids and p.deletedAt is null")
+    int softDeleteAllByIdIn(@Param("ids") Collection<UUID> ids, @Param("deletedAt") Instant deletedAt);
 }
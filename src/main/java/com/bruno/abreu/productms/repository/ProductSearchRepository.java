@@ -0,0 +1,15 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.Product;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface ProductSearchRepository {
+
+    /**
+     * Products whose name or description contain {@code q} and whose price is within the bounds. Any of the
+     * parameters may be null, in which case it does not filter at all.
+     */
+    List<Product> findBySearchParameters(String q, BigDecimal minPrice, BigDecimal maxPrice);
+}
@@ -0,0 +1,36 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.Product;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Builds the search query from {@link ProductSpecifications}, as its own repository method so it keeps its
+ * name in the repository metrics.
+ */
+class ProductSearchRepositoryImpl implements ProductSearchRepository {
+
+    private final EntityManager entityManager;
+
+    ProductSearchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Product> findBySearchParameters(String q, BigDecimal minPrice, BigDecimal maxPrice) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Product> query = builder.createQuery(Product.class);
+        Root<Product> root = query.from(Product.class);
+        Predicate predicate = ProductSpecifications.search(q, minPrice, maxPrice).toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getResultList();
+    }
+}
@@ -0,0 +1,50 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+
+/**
+ * Search criteria for {@link ProductRepository}. Every criterion is optional and leaves no predicate behind
+ * when it is not given, so the database only filters (and picks indexes) on what was actually asked for.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> search(String q, BigDecimal minPrice, BigDecimal maxPrice) {
+        return Specification.where(containing(q)).and(priceBetween(minPrice, maxPrice));
+    }
+
+    /**
+     * Name or description containing {@code q}; none when {@code q} is null or blank.
+     */
+    public static Specification<Product> containing(String q) {
+        if (q == null || q.isBlank()) {
+            return null;
+        }
+        String pattern = "%" + q + "%";
+        return (root, query, builder) -> builder.or(
+                builder.like(root.get("name"), pattern),
+                builder.like(root.get("description"), pattern));
+    }
+
+    /**
+     * Price within the given bounds, either of which may be null. Compares the bare column, so the price
+     * index can serve the range.
+     */
+    public static Specification<Product> priceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return null;
+        }
+        if (maxPrice == null) {
+            return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("price"), minPrice);
+        }
+        if (minPrice == null) {
+            return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("price"), maxPrice);
+        }
+        return (root, query, builder) -> builder.between(root.get("price"), minPrice, maxPrice);
+    }
+}
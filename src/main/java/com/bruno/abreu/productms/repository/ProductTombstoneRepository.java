@@ -0,0 +1,34 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.ProductTombstone;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface ProductTombstoneRepository extends CrudRepository<ProductTombstone, UUID> {
+
+    /**
+     * Same keyset as {@link ProductRepository#findModifiedAfter}, on (deletedAt, id), over the tombstones of
+     * hard deletes and the soft deleted products together. A soft delete sets updated_at to its deletion time,
+     * so each side is read in order from its own (time, id) index and limited before they are merged.
+     */
+    @Query(nativeQuery = true, value =
+            "select id, deleted_at from (" +
+            "(select t.id, t.deleted_at from product_tombstone t " +
+            "where t.deleted_at >= :since and t.deleted_at < :until and (t.deleted_at > :since or t.id > :after) " +
+            "order by t.deleted_at, t.id limit :limit) " +
+            "union all " +
+            "(select p.id, p.updated_at as deleted_at from product p " +
+            "where p.deleted_at is not null " +
+            "and p.updated_at >= :since and p.updated_at < :until and (p.updated_at > :since or p.id > :after) " +
+            "order by p.updated_at, p.id limit :limit)" +
+            ") deleted order by deleted_at, id limit :limit")
+    List<ProductTombstone> findDeletedAfter(@Param("since") Instant since,
+                                            @Param("after") UUID after,
+                                            @Param("until") Instant until,
+                                            @Param("limit") int limit);
+}
@@ -0,0 +1,20 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.ProductPatch;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Writes that go straight to the row, without loading the product into the persistence context first.
+ */
+public interface ProductUpdateRepository {
+
+    /**
+     * Sets the fields of the patch on the product at {@code version}, or at whatever version it is when
+     * {@code version} is null, moving it to the next version, with a single UPDATE of just those columns.
+     * Auditing does not run on bulk statements, so {@code updatedAt} is set here. Returns the number of rows
+     * updated: zero when the product does not exist or is at another version.
+     */
+    int update(UUID id, Long version, ProductPatch patch, Instant updatedAt);
+}
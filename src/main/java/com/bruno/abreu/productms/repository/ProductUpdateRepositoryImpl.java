@@ -0,0 +1,56 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductField;
+import com.bruno.abreu.productms.model.ProductPatch;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+class ProductUpdateRepositoryImpl implements ProductUpdateRepository {
+
+    private static final String VERSION = "version";
+    private static final String UPDATED_AT = "updatedAt";
+    private static final String DELETED_AT = "deletedAt";
+
+    private final EntityManager entityManager;
+
+    ProductUpdateRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public int update(UUID id, Long version, ProductPatch patch, Instant updatedAt) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Product> update = builder.createCriteriaUpdate(Product.class);
+        Root<Product> root = update.from(Product.class);
+        if (patch.getName() != null) {
+            update.set(root.get(ProductField.NAME.getName()), patch.getName());
+        }
+        if (patch.getDescription() != null) {
+            update.set(root.get(ProductField.DESCRIPTION.getName()), patch.getDescription());
+        }
+        if (patch.getPrice() != null) {
+            update.set(root.get(ProductField.PRICE.getName()), patch.getPrice());
+        }
+        Path<Long> currentVersion = root.get(VERSION);
+        update.set(currentVersion, builder.sum(currentVersion, 1L));
+        update.set(root.get(UPDATED_AT), updatedAt);
+        List<Predicate> predicates = new ArrayList<>(3);
+        predicates.add(builder.equal(root.get(ProductField.ID.getName()), id));
+        if (version != null) {
+            predicates.add(builder.equal(currentVersion, version));
+        }
+        predicates.add(builder.isNull(root.get(DELETED_AT)));
+        update.where(predicates.toArray(Predicate[]::new));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
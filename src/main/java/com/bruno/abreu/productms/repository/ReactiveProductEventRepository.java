@@ -0,0 +1,42 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.ProductEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * R2DBC counterpart of {@link ProductEventRepository#appendAll}, so the reactive profile records its writes
+ * in the same outbox. Publishing them is left to the relay of the servlet profile.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveProductEventRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveProductEventRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Void> append(ProductEvent event) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("insert into product_event " +
+                        "(type, product_id, version, occurred_at, payload) " +
+                        "values (:type, :productId, :version, :occurredAt, :payload)")
+                .bind("type", event.getType().name())
+                .bind("productId", UuidBytes.toBytes(event.getProductId()))
+                // occurred_at is stored in UTC, like the timestamps Hibernate writes
+                .bind("occurredAt", LocalDateTime.ofInstant(event.getOccurredAt(), ZoneOffset.UTC));
+        spec = event.getVersion() == null
+                ? spec.bindNull("version", Long.class)
+                : spec.bind("version", event.getVersion());
+        spec = event.getPayload() == null
+                ? spec.bindNull("payload", String.class)
+                : spec.bind("payload", event.getPayload());
+        return spec.fetch().rowsUpdated().then();
+    }
+}
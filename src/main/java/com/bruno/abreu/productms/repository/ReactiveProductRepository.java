@@ -0,0 +1,180 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.Product;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * R2DBC counterpart of {@link ProductRepository}, used by the reactive profile. Ids are bound as the same
+ * BINARY(16) layout Hibernate uses for uuid-binary.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveProductRepository {
+
+    /**
+     * Soft deleted rows are left out, as the JPA entity does with its @Where.
+     */
+    private static final String SELECT = "select id, name, description, price, version, created_at, updated_at " +
+            "from product where deleted_at is null ";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveProductRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Product> findById(UUID id) {
+        return databaseClient.sql(SELECT + "and id = :id")
+                .bind("id", UuidBytes.toBytes(id))
+                .map(ReactiveProductRepository::toProduct)
+                .one();
+    }
+
+    public Flux<Product> findAll(UUID after, int limit) {
+        if (after == null) {
+            return databaseClient.sql(SELECT + "order by id limit :limit")
+                    .bind("limit", limit)
+                    .map(ReactiveProductRepository::toProduct)
+                    .all();
+        }
+        return databaseClient.sql(SELECT + "and id > :after order by id limit :limit")
+                .bind("after", UuidBytes.toBytes(after))
+                .bind("limit", limit)
+                .map(ReactiveProductRepository::toProduct)
+                .all();
+    }
+
+    /**
+     * Emits every product as the subscriber requests them, so the driver only fetches what was asked for.
+     */
+    public Flux<Product> streamAll() {
+        return databaseClient.sql(SELECT + "order by id")
+                .map(ReactiveProductRepository::toProduct)
+                .all();
+    }
+
+    /**
+     * Same criteria as {@link ProductSpecifications#search}: a null or blank parameter adds no predicate.
+     */
+    public Flux<Product> findBySearchParameters(String q, BigDecimal minPrice, BigDecimal maxPrice) {
+        List<String> predicates = new ArrayList<>();
+        if (q != null && !q.isBlank()) {
+            predicates.add("(name like :q or description like :q)");
+        }
+        if (minPrice != null) {
+            predicates.add("price >= :minPrice");
+        }
+        if (maxPrice != null) {
+            predicates.add("price <= :maxPrice");
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(SELECT +
+                predicates.stream().map(predicate -> "and " + predicate + " ").collect(Collectors.joining()));
+        if (q != null && !q.isBlank()) {
+            spec = spec.bind("q", "%" + q + "%");
+        }
+        if (minPrice != null) {
+            spec = spec.bind("minPrice", minPrice);
+        }
+        if (maxPrice != null) {
+            spec = spec.bind("maxPrice", maxPrice);
+        }
+        return spec.map(ReactiveProductRepository::toProduct).all();
+    }
+
+    public Mono<Product> insert(Product product) {
+        product.setVersion(0L);
+        product.setCreatedAt(now());
+        product.setUpdatedAt(product.getCreatedAt());
+        return databaseClient.sql("insert into product (id, name, description, price, version, created_at, " +
+                "updated_at) values (:id, :name, :description, :price, :version, :createdAt, :updatedAt)")
+                .bind("id", UuidBytes.toBytes(product.getId()))
+                .bind("name", product.getName())
+                .bind("description", product.getDescription())
+                .bind("price", product.getPrice())
+                .bind("version", product.getVersion())
+                .bind("createdAt", LocalDateTime.ofInstant(product.getCreatedAt(), ZoneOffset.UTC))
+                .bind("updatedAt", LocalDateTime.ofInstant(product.getUpdatedAt(), ZoneOffset.UTC))
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(product);
+    }
+
+    public Mono<Integer> update(Product product) {
+        return databaseClient.sql("update product set name = :name, description = :description, price = :price, " +
+                "version = version + 1, updated_at = :updatedAt where id = :id and deleted_at is null")
+                .bind("id", UuidBytes.toBytes(product.getId()))
+                .bind("name", product.getName())
+                .bind("description", product.getDescription())
+                .bind("price", product.getPrice())
+                .bind("updatedAt", LocalDateTime.ofInstant(now(), ZoneOffset.UTC))
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> deleteById(UUID id) {
+        return databaseClient.sql("delete from product where id = :id and deleted_at is null")
+                .bind("id", UuidBytes.toBytes(id))
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Same as {@link ProductRepository#softDeleteAllByIdIn} for a single id.
+     */
+    public Mono<Integer> softDeleteById(UUID id, Instant deletedAt) {
+        LocalDateTime at = LocalDateTime.ofInstant(deletedAt, ZoneOffset.UTC);
+        return databaseClient.sql("update product set deleted_at = :deletedAt, updated_at = :deletedAt, " +
+                "version = version + 1 where id = :id and deleted_at is null")
+                .bind("id", UuidBytes.toBytes(id))
+                .bind("deletedAt", at)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Void> insertTombstone(UUID id, Instant deletedAt) {
+        return databaseClient.sql("insert into product_tombstone (id, deleted_at) values (:id, :deletedAt)")
+                .bind("id", UuidBytes.toBytes(id))
+                .bind("deletedAt", LocalDateTime.ofInstant(deletedAt, ZoneOffset.UTC))
+                .fetch()
+                .rowsUpdated()
+                .then();
+    }
+
+    private static Product toProduct(Row row) {
+        return Product.builder()
+                .id(UuidBytes.toUuid(row.get("id", byte[].class)))
+                .name(row.get("name", String.class))
+                .description(row.get("description", String.class))
+                .price(row.get("price", BigDecimal.class))
+                .version(row.get("version", Long.class))
+                .createdAt(toInstant(row.get("created_at", LocalDateTime.class)))
+                .updatedAt(toInstant(row.get("updated_at", LocalDateTime.class)))
+                .build();
+    }
+
+    /**
+     * created_at and updated_at are stored in UTC, as Hibernate is configured to write it.
+     */
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.toInstant(ZoneOffset.UTC);
+    }
+}
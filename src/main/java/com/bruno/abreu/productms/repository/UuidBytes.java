@@ -0,0 +1,26 @@
+package com.bruno.abreu.productms.repository;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Converts ids to and from the BINARY(16) layout Hibernate uses for uuid-binary, for the repositories that
+ * write SQL by hand.
+ */
+final class UuidBytes {
+
+    private UuidBytes() {
+    }
+
+    static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID toUuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -1,46 +1,470 @@
 package com.bruno.abreu.productms.service;
 
+import com.bruno.abreu.productms.config.BatchProperties;
+import com.bruno.abreu.productms.config.SyncProperties;
+import com.bruno.abreu.productms.exception.ChangesExpired;
+import com.bruno.abreu.productms.exception.PreconditionFailed;
 import com.bruno.abreu.productms.exception.ProductNotFound;
 import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductEvent;
+import com.bruno.abreu.productms.model.ProductField;
+import com.bruno.abreu.productms.model.ProductLookup;
+import com.bruno.abreu.productms.model.ProductModification;
+import com.bruno.abreu.productms.model.ProductPatch;
+import com.bruno.abreu.productms.model.ProductTombstone;
+import com.bruno.abreu.productms.model.ProductVersion;
+import com.bruno.abreu.productms.repository.ProductEventRepository;
 import com.bruno.abreu.productms.repository.ProductRepository;
+import com.bruno.abreu.productms.repository.ProductTombstoneRepository;
+import com.bruno.abreu.productms.service.bulkhead.DatabaseBulkhead;
+import com.bruno.abreu.productms.service.bulkhead.DatabaseCall;
+import com.bruno.abreu.productms.service.cache.ProductBatchLoader;
+import com.bruno.abreu.productms.service.cache.ProductCache;
+import com.bruno.abreu.productms.service.outbox.ProductEvents;
+import com.bruno.abreu.productms.service.replica.ReadReplica;
+import com.bruno.abreu.productms.service.replica.ReplicaRouting;
+import com.bruno.abreu.productms.service.search.ProductSearchBackend;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.List;
-import java.util.UUID;
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
+@Profile("!reactive")
+@Timed(value = "product.service", histogram = true)
 public class ProductService {
 
+    /**
+     * Sorts before every other id, so a keyset position without an id includes the whole instant.
+     */
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final Set<ProductField> STREAMED_FIELDS = EnumSet.allOf(ProductField.class);
+
     private final ProductRepository productRepository;
+    private final ProductSearchBackend productSearchBackend;
+    private final ProductCache productCache;
+    private final ProductBatchLoader productBatchLoader;
+    private final BatchProperties batchProperties;
+    private final EntityManager entityManager;
+    private final DatabaseBulkhead databaseBulkhead;
+    private final ProductEvents productEvents;
+    private final ProductEventRepository productEventRepository;
+    private final ProductTombstoneRepository productTombstoneRepository;
+    private final SyncProperties syncProperties;
+    private final ReplicaRouting replicaRouting;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository,
+                          ProductSearchBackend productSearchBackend,
+                          ProductCache productCache,
+                          ProductBatchLoader productBatchLoader,
+                          BatchProperties batchProperties,
+                          EntityManager entityManager,
+                          DatabaseBulkhead databaseBulkhead,
+                          ProductEvents productEvents,
+                          ProductEventRepository productEventRepository,
+                          ProductTombstoneRepository productTombstoneRepository,
+                          SyncProperties syncProperties,
+                          ReplicaRouting replicaRouting) {
         this.productRepository = productRepository;
+        this.productSearchBackend = productSearchBackend;
+        this.productCache = productCache;
+        this.productBatchLoader = productBatchLoader;
+        this.batchProperties = batchProperties;
+        this.entityManager = entityManager;
+        this.databaseBulkhead = databaseBulkhead;
+        this.productEvents = productEvents;
+        this.productEventRepository = productEventRepository;
+        this.productTombstoneRepository = productTombstoneRepository;
+        this.syncProperties = syncProperties;
+        this.replicaRouting = replicaRouting;
     }
 
+    @DatabaseCall
+    @Transactional
     public Product create(Product product) {
-        return productRepository.save(product);
+        product.setId(null);
+        Product newProduct = productRepository.save(product);
+        productEvents.recordAll(ProductEvent.Type.CREATED, List.of(newProduct));
+        afterCommit(() -> refresh(newProduct));
+        return newProduct;
     }
 
+    /**
+     * Writes the product over the current one. A null version means the caller does not care which version
+     * it overwrites; otherwise a stale version fails with {@link PreconditionFailed}.
+     */
+    @DatabaseCall
+    @Transactional
     public Product update(Product product) {
-        findById(product.getId());
-        return productRepository.save(product);
+        return write(product.getId(), product.getVersion(), ProductPatch.of(product));
+    }
+
+    /**
+     * Changes only the fields the patch sets, with the same version handling as {@link #update(Product)}.
+     */
+    @DatabaseCall
+    @Transactional
+    public Product patch(UUID id, Long version, ProductPatch patch) {
+        if (patch.isEmpty()) {
+            return current(id, version);
+        }
+        return write(id, version, patch);
+    }
+
+    /**
+     * Inserts all products in one transaction, flushing one JDBC batch per chunk.
+     */
+    @DatabaseCall
+    @Transactional
+    public List<Product> createAll(List<Product> products) {
+        List<Product> newProducts = new ArrayList<>(products.size());
+        for (List<Product> chunk : chunks(products)) {
+            chunk.forEach(product -> product.setId(null));
+            List<Product> saved = new ArrayList<>(chunk.size());
+            productRepository.saveAll(chunk).forEach(saved::add);
+            flushAndClear();
+            productEvents.recordAll(ProductEvent.Type.CREATED, saved);
+            newProducts.addAll(saved);
+        }
+        afterCommit(() -> created(newProducts));
+        return newProducts;
     }
 
+    /**
+     * Updates all products in one transaction. Each chunk is loaded with a single query, so a missing id
+     * rolls the whole batch back with {@link ProductNotFound}, and the changes are flushed as one JDBC batch.
+     * Products sent without a version overwrite the current one.
+     */
+    @DatabaseCall
+    @Transactional
+    public List<Product> updateAll(List<Product> products) {
+        List<Product> updatedProducts = new ArrayList<>(products.size());
+        for (List<Product> chunk : chunks(products)) {
+            Set<UUID> ids = chunk.stream().map(Product::getId).collect(Collectors.toSet());
+            Map<UUID, Long> versions = new HashMap<>();
+            productRepository.findAllById(ids).forEach(current -> versions.put(current.getId(), current.getVersion()));
+            if (versions.size() != ids.size()) {
+                throw new ProductNotFound();
+            }
+            chunk.stream()
+                    .filter(product -> product.getVersion() == null)
+                    .forEach(product -> product.setVersion(versions.get(product.getId())));
+            List<Product> saved = new ArrayList<>(chunk.size());
+            productRepository.saveAll(chunk).forEach(saved::add);
+            flushAndClear();
+            productEvents.recordAll(ProductEvent.Type.UPDATED, saved);
+            updatedProducts.addAll(saved);
+        }
+        afterCommit(() -> written(updatedProducts));
+        return updatedProducts;
+    }
+
+    /**
+     * Returns the product from the cache, loading it on a miss. Concurrent lookups of an id that is not cached
+     * wait for a single load instead of each querying the database. Misses are read from the primary: a row
+     * read from a lagging replica right after a write would stay cached, and be shared with the other
+     * instances, for the whole TTL.
+     */
     public Product findById(UUID id) {
-        return productRepository.findById(id).orElseThrow(ProductNotFound::new);
+        return productCache.get(id, productBatchLoader::load);
+    }
+
+    /**
+     * Looks up many products at once, the cached ones from the cache and the others with a single query.
+     * Products come in the order of {@code ids}, each one once, and the ids that do not exist are listed as
+     * missing. Like {@link #findById(UUID)}, the ones not cached are read from the primary.
+     */
+    public ProductLookup findAllById(List<UUID> ids) {
+        Set<UUID> distinctIds = new LinkedHashSet<>(ids);
+        Map<UUID, Optional<Product>> found = productCache.getAll(distinctIds, productBatchLoader::loadAll);
+        List<Product> products = new ArrayList<>(distinctIds.size());
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : distinctIds) {
+            Optional<Product> product = found.getOrDefault(id, Optional.empty());
+            if (product.isPresent()) {
+                products.add(product.get());
+            } else {
+                missing.add(id);
+            }
+        }
+        return new ProductLookup(products, missing);
+    }
+
+    /**
+     * Returns the version of a product, from the cache when it is there and otherwise without loading the
+     * whole row.
+     */
+    @ReadReplica
+    public ProductVersion findVersionById(UUID id) {
+        Product cached = productCache.peek(id);
+        if (cached != null) {
+            return ProductVersion.of(cached);
+        }
+        return databaseBulkhead.call(() -> productRepository.findVersionById(id))
+                .orElseThrow(ProductNotFound::new);
     }
 
-    public List<Product> findAll() {
-        return productRepository.findAll();
+    /**
+     * Same page as {@link #findAll(UUID, int)}, selecting only {@code fields} (plus id and version).
+     */
+    @DatabaseCall
+    @ReadReplica
+    public List<Product> findAll(UUID after, int limit, Set<ProductField> fields) {
+        return productRepository.findAllProjected(fields, after, limit);
     }
 
-    public List<Product> findBySearchParameters(String q, Double minPrice, Double maxPrice) {
-        return productRepository.findBySearchParameters(q, minPrice, maxPrice);
+    /**
+     * Returns up to {@code limit} products ordered by id, starting right after the {@code after} cursor
+     * (or from the beginning when it is null).
+     */
+    @DatabaseCall
+    @ReadReplica
+    public List<Product> findAll(UUID after, int limit) {
+        Pageable page = PageRequest.of(0, limit);
+        if (after == null) {
+            return productRepository.findAllByOrderById(page);
+        }
+        return productRepository.findByIdGreaterThanOrderById(after, page);
     }
 
+    /**
+     * Hands every product to the consumer in id order, reading them a keyset page at a time from a replica.
+     * The permit and the connection are only held while a page is read, never while the consumer runs, so
+     * a slow client only slows down its own stream. The pages are projections, which keeps the products
+     * out of the persistence context.
+     */
+    public void streamAll(Consumer<Product> consumer) {
+        UUID after = null;
+        List<Product> page;
+        do {
+            UUID from = after;
+            try (ReplicaRouting.Scope scope = replicaRouting.replicaRead()) {
+                page = databaseBulkhead.call(() ->
+                        productRepository.findAllProjected(STREAMED_FIELDS, from, STREAM_PAGE_SIZE));
+            }
+            page.forEach(consumer);
+            after = page.isEmpty() ? null : page.get(page.size() - 1).getId();
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    @ReadReplica
+    public List<Product> findBySearchParameters(String q, BigDecimal minPrice, BigDecimal maxPrice) {
+        return productSearchBackend.search(q, minPrice, maxPrice);
+    }
+
+    /**
+     * Same as {@link #findBySearchParameters(String, BigDecimal, BigDecimal)} when only {@code fields} are
+     * read from the products, which lets the search select just those columns.
+     */
+    @ReadReplica
+    public List<Product> findBySearchParameters(String q, BigDecimal minPrice, BigDecimal maxPrice,
+                                                Set<ProductField> fields) {
+        return productSearchBackend.search(q, minPrice, maxPrice, fields);
+    }
+
+    /**
+     * Deletes the product with a single statement, answering {@link ProductNotFound} from the affected row
+     * count instead of looking the product up first.
+     */
+    @DatabaseCall
+    @Transactional
     public void delete(UUID id) {
-        productRepository.deleteById(id);
+        remove(List.of(id));
+        afterCommit(() -> {
+            productCache.deleted(List.of(id));
+            productSearchBackend.remove(id);
+        });
+    }
+
+    /**
+     * Deletes all products with one statement per chunk, rolling back with {@link ProductNotFound} if any
+     * of them does not exist.
+     */
+    @DatabaseCall
+    @Transactional
+    public void deleteAll(List<UUID> ids) {
+        Set<UUID> distinctIds = new LinkedHashSet<>(ids);
+        for (List<UUID> chunk : chunks(new ArrayList<>(distinctIds))) {
+            remove(chunk);
+        }
+        afterCommit(() -> {
+            productCache.deleted(distinctIds);
+            distinctIds.forEach(productSearchBackend::remove);
+        });
+    }
+
+    /**
+     * Returns up to {@code limit} products and tombstones modified at or after {@code since}, ordered by
+     * modification time and id. The next page starts from the (modifiedAt, id) of the last one; without an
+     * {@code after} id the whole {@code since} instant is included.
+     */
+    @DatabaseCall
+    public List<ProductModification> findModified(Instant since, UUID after, int limit) {
+        Instant until = Instant.now().minus(syncProperties.getSettleTime());
+        UUID from = after == null ? FIRST_ID : after;
+        Pageable page = PageRequest.of(0, limit);
+        List<ProductModification> modifications = new ArrayList<>();
+        productRepository.findModifiedAfter(since, from, until, page)
+                .forEach(product -> modifications.add(ProductModification.of(product)));
+        productTombstoneRepository.findDeletedAfter(since, from, until, limit)
+                .forEach(tombstone -> modifications.add(ProductModification.of(tombstone)));
+        modifications.sort(ProductModification.ORDER);
+        return modifications.size() > limit ? new ArrayList<>(modifications.subList(0, limit)) : modifications;
+    }
+
+    /**
+     * Returns up to {@code limit} published changes after the given offset, oldest first. Without an offset
+     * it starts from the oldest change still retained; an offset older than that fails with
+     * {@link ChangesExpired}, since the changes in between are gone.
+     */
+    @DatabaseCall
+    public List<ProductEvent> findChanges(Long since, int limit) {
+        long first = productEventRepository.findFirstOffset().orElse(1L);
+        if (since != null && since < first - 1) {
+            throw new ChangesExpired();
+        }
+        return productEventRepository.findAfter(since == null ? first - 1 : since, limit);
+    }
+
+    /**
+     * Applies the patch with one UPDATE. With a version the UPDATE is conditioned on it, so a stale version
+     * fails instead of overwriting a concurrent write; without one it moves the product to the next version,
+     * whatever it was, and zero rows updated can only mean {@link ProductNotFound}. The event and the response
+     * carry the whole product, which is read back from the primary after the UPDATE, under the row lock it
+     * holds, so the read sees exactly this write. That read is skipped when the version is known, the patch
+     * sets every field and the near cache has the product, whose created_at never changes. Without a version
+     * the read can't be skipped: MySQL has no UPDATE ... RETURNING to hand back the new version.
+     */
+    private Product write(UUID id, Long expectedVersion, ProductPatch patch) {
+        Instant updatedAt = now();
+        if (productRepository.update(id, expectedVersion, patch, updatedAt) == 0) {
+            // Only now is it worth telling a missing product apart from a stale version
+            if (expectedVersion == null || productRepository.findVersionById(id).isEmpty()) {
+                throw new ProductNotFound();
+            }
+            throw new PreconditionFailed();
+        }
+        Instant createdAt = expectedVersion != null && patch.isComplete() ? cachedCreatedAt(id) : null;
+        Product updatedProduct = createdAt != null
+                ? patch.applyTo(Product.builder().id(id).createdAt(createdAt).build()).toBuilder()
+                        .version(expectedVersion + 1)
+                        .updatedAt(updatedAt)
+                        .build()
+                : current(id, null);
+        productEvents.recordAll(ProductEvent.Type.UPDATED, List.of(updatedProduct));
+        afterCommit(() -> written(List.of(updatedProduct)));
+        return updatedProduct;
+    }
+
+    /**
+     * The created_at of the product if this instance has it cached, at any version.
+     */
+    private Instant cachedCreatedAt(UUID id) {
+        try {
+            Product cached = productCache.peek(id);
+            return cached == null ? null : cached.getCreatedAt();
+        } catch (ProductNotFound e) {
+            return null;
+        }
+    }
+
+    /**
+     * The product as the primary has it, which must be at the expected version when there is one. It is
+     * detached, so nothing done to the returned product is ever flushed back.
+     */
+    private Product current(UUID id, Long expectedVersion) {
+        Product current = productRepository.findById(id).orElseThrow(ProductNotFound::new);
+        entityManager.detach(current);
+        if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+            throw new PreconditionFailed();
+        }
+        return current;
+    }
+
+    /**
+     * Deletes distinct ids with one statement. A soft delete only marks the rows, which then stand for their
+     * own tombstones; a hard delete removes them and inserts a tombstone for each one.
+     */
+    private void remove(List<UUID> ids) {
+        Instant deletedAt = now();
+        int deleted = syncProperties.isSoftDelete()
+                ? productRepository.softDeleteAllByIdIn(ids, deletedAt)
+                : productRepository.deleteAllByIdIn(ids);
+        if (deleted != ids.size()) {
+            throw new ProductNotFound();
+        }
+        if (!syncProperties.isSoftDelete()) {
+            productTombstoneRepository.saveAll(ids.stream()
+                    .map(id -> new ProductTombstone(id, deletedAt))
+                    .collect(Collectors.toList()));
+        }
+        productEvents.recordDeleted(ids);
+    }
+
+    /**
+     * Created ids are unknown to anyone before the commit, so the shared cache has nothing to invalidate.
+     */
+    private void refresh(Product product) {
+        productCache.evict(product.getId());
+        productSearchBackend.index(product);
+    }
+
+    /**
+     * Evicts and indexes a whole batch at once, so an import takes the cache and index locks once per chunk.
+     */
+    private void created(List<Product> products) {
+        productCache.evict(products.stream().map(Product::getId).collect(Collectors.toList()));
+        productSearchBackend.indexAll(products);
+    }
+
+    private void written(List<Product> products) {
+        productCache.written(products);
+        productSearchBackend.indexAll(products);
+    }
+
+    private <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += batchProperties.getChunkSize()) {
+            chunks.add(items.subList(from, Math.min(from + batchProperties.getChunkSize(), items.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Truncated to what a DATETIME(6) column keeps, like the audited timestamps once they are reloaded.
+     */
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                replicaRouting.written();
+                action.run();
+            }
+        });
     }
 }
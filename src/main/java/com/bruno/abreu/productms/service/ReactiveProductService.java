@@ -0,0 +1,133 @@
+package com.bruno.abreu.productms.service;
+
+import com.bruno.abreu.productms.config.SyncProperties;
+import com.bruno.abreu.productms.exception.ProductNotFound;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductEvent;
+import com.bruno.abreu.productms.model.id.ProductIdStrategy;
+import com.bruno.abreu.productms.repository.ReactiveProductEventRepository;
+import com.bruno.abreu.productms.repository.ReactiveProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Writes behave as in {@link ProductService}: each one records its outbox event in the same transaction, and a
+ * delete is either soft (product.sync.soft-delete) or removes the row and inserts a tombstone, so
+ * GET /products?modifiedSince and the change feed see the writes of both profiles.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveProductService {
+
+    private final ReactiveProductRepository productRepository;
+    private final ReactiveProductEventRepository productEventRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final SyncProperties syncProperties;
+    private final ObjectWriter productWriter;
+    private final ProductIdStrategy idStrategy;
+
+    @Autowired
+    public ReactiveProductService(ReactiveProductRepository productRepository,
+                                  ReactiveProductEventRepository productEventRepository,
+                                  TransactionalOperator transactionalOperator,
+                                  SyncProperties syncProperties,
+                                  ObjectMapper objectMapper,
+                                  @Value("${spring.jpa.properties.product.id-strategy:time-ordered}") String idStrategy) {
+        this.productRepository = productRepository;
+        this.productEventRepository = productEventRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.syncProperties = syncProperties;
+        this.productWriter = objectMapper.writerFor(Product.class);
+        this.idStrategy = ProductIdStrategy.fromSetting(idStrategy);
+    }
+
+    public Mono<Product> create(Product product) {
+        product.setId(idStrategy.generate());
+        return productRepository.insert(product)
+                .flatMap(created -> record(ProductEvent.Type.CREATED, created))
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Returns the product as stored after the update, with its new version.
+     */
+    public Mono<Product> update(Product product) {
+        return productRepository.update(product)
+                .flatMap(updated -> updated == 0
+                        ? Mono.<Product>error(ProductNotFound::new)
+                        : productRepository.findById(product.getId()))
+                .flatMap(updated -> record(ProductEvent.Type.UPDATED, updated))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<Product> findById(UUID id) {
+        return productRepository.findById(id).switchIfEmpty(Mono.error(ProductNotFound::new));
+    }
+
+    public Flux<Product> findAll(UUID after, int limit) {
+        return productRepository.findAll(after, limit);
+    }
+
+    public Flux<Product> streamAll() {
+        return productRepository.streamAll();
+    }
+
+    public Flux<Product> findBySearchParameters(String q, BigDecimal minPrice, BigDecimal maxPrice) {
+        return productRepository.findBySearchParameters(q, minPrice, maxPrice);
+    }
+
+    public Mono<Void> delete(UUID id) {
+        Instant deletedAt = now();
+        Mono<Integer> deleted = syncProperties.isSoftDelete()
+                ? productRepository.softDeleteById(id, deletedAt)
+                : productRepository.deleteById(id).flatMap(count -> count == 0
+                        ? Mono.just(count)
+                        : productRepository.insertTombstone(id, deletedAt).thenReturn(count));
+        return deleted
+                .flatMap(count -> count == 0
+                        ? Mono.<Void>error(ProductNotFound::new)
+                        : productEventRepository.append(ProductEvent.builder()
+                                .type(ProductEvent.Type.DELETED)
+                                .productId(id)
+                                .occurredAt(deletedAt)
+                                .build()))
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Product> record(ProductEvent.Type type, Product product) {
+        String payload;
+        try {
+            payload = productWriter.writeValueAsString(product);
+        } catch (JsonProcessingException e) {
+            return Mono.error(new IllegalStateException("Could not serialize product " + product.getId(), e));
+        }
+        return productEventRepository.append(ProductEvent.builder()
+                        .type(type)
+                        .productId(product.getId())
+                        .version(product.getVersion())
+                        .occurredAt(now())
+                        .payload(payload)
+                        .build())
+                .thenReturn(product);
+    }
+
+    /**
+     * Truncated to what a DATETIME(6) column keeps.
+     */
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+}
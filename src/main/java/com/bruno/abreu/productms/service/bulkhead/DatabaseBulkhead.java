@@ -0,0 +1,117 @@
+package com.bruno.abreu.productms.service.bulkhead;
+
+import com.bruno.abreu.productms.exception.DatabaseBusy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many threads use the database at once. Callers over the limit wait in a fair queue on a
+ * semaphore instead of inside the connection pool, which is cheap for virtual threads and lets the queue
+ * depth and wait time be published as metrics. Permits are reentrant per thread, so a service method that
+ * calls another one only holds a single permit.
+ */
+public class DatabaseBulkhead {
+
+    private final int maxConcurrentCalls;
+    private final Duration maxWait;
+    private final Semaphore permits;
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+    private final Timer waitTimer;
+    private final Counter rejections;
+
+    public DatabaseBulkhead(int maxConcurrentCalls, Duration maxWait, MeterRegistry meterRegistry) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+
+        Gauge.builder("product.db.bulkhead.queued", permits, Semaphore::getQueueLength)
+                .description("Threads waiting for a database permit")
+                .register(meterRegistry);
+        Gauge.builder("product.db.bulkhead.active", this, DatabaseBulkhead::getActiveCalls)
+                .description("Database permits in use")
+                .register(meterRegistry);
+        Gauge.builder("product.db.bulkhead.limit", this, DatabaseBulkhead::getMaxConcurrentCalls)
+                .description("Maximum concurrent database calls")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("product.db.bulkhead.wait")
+                .description("Time spent waiting for a database permit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejections = Counter.builder("product.db.bulkhead.rejected")
+                .description("Calls that gave up waiting for a database permit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a permit for the current thread, waiting up to the configured time, or joins the one it
+     * already holds.
+     *
+     * @throws DatabaseBusy if no permit was released in time
+     */
+    public Permit enter() {
+        int[] held = depth.get();
+        if (held[0] == 0) {
+            acquire();
+        }
+        held[0]++;
+        return this::exit;
+    }
+
+    public <T> T call(Supplier<T> action) {
+        try (Permit permit = enter()) {
+            return action.get();
+        }
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getActiveCalls() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejections.increment();
+            throw new DatabaseBusy();
+        }
+    }
+
+    private void exit() {
+        int[] held = depth.get();
+        if (--held[0] == 0) {
+            depth.remove();
+            permits.release();
+        }
+    }
+
+    /**
+     * A held permit, released when closed.
+     */
+    public interface Permit extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,29 @@
+package com.bruno.abreu.productms.service.bulkhead;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Wraps {@link DatabaseCall} methods in a permit. It runs before the transaction advice, so a transaction
+ * (and the connection it holds) is only opened once the permit has been granted.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DatabaseBulkheadAspect {
+
+    private final DatabaseBulkhead databaseBulkhead;
+
+    public DatabaseBulkheadAspect(DatabaseBulkhead databaseBulkhead) {
+        this.databaseBulkhead = databaseBulkhead;
+    }
+
+    @Around("@annotation(com.bruno.abreu.productms.service.bulkhead.DatabaseCall)")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        try (DatabaseBulkhead.Permit permit = databaseBulkhead.enter()) {
+            return joinPoint.proceed();
+        }
+    }
+}
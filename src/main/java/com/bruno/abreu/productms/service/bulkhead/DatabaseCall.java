@@ -0,0 +1,15 @@
+package com.bruno.abreu.productms.service.bulkhead;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a bean method that uses a database connection, so it only runs while holding a
+ * {@link DatabaseBulkhead} permit.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DatabaseCall {
+}
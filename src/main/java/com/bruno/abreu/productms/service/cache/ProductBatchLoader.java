@@ -0,0 +1,122 @@
+package com.bruno.abreu.productms.service.cache;
+
+import com.bruno.abreu.productms.config.ProductCacheProperties;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.repository.ProductRepository;
+import com.bruno.abreu.productms.service.bulkhead.DatabaseBulkhead;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the products missing from {@link ProductCache}.
+ * <p>
+ * With a product.cache.batch-window, ids requested within the window are read together with one
+ * {@code findAllById}. The first caller of a batch waits for the window, or until batch-max-size ids have
+ * joined, and runs the query on its own thread, so it goes through the caller's replica routing and
+ * database permit. The others get the future of the batch right away and wait on it wherever they are.
+ * Without a window each id is read on its own.
+ */
+@Component
+@Profile("!reactive")
+public class ProductBatchLoader {
+
+    private final ProductRepository productRepository;
+    private final DatabaseBulkhead databaseBulkhead;
+    private final Duration window;
+    private final int maxSize;
+
+    private Batch open;
+
+    public ProductBatchLoader(ProductRepository productRepository,
+                              DatabaseBulkhead databaseBulkhead,
+                              ProductCacheProperties properties) {
+        this.productRepository = productRepository;
+        this.databaseBulkhead = databaseBulkhead;
+        this.window = properties.getBatchWindow();
+        this.maxSize = properties.getBatchMaxSize();
+    }
+
+    /**
+     * Returns the product of {@code id} as its batch completes. The caller that opens a batch has already
+     * read it when this returns.
+     */
+    public CompletableFuture<Optional<Product>> load(UUID id) {
+        if (window.isZero()) {
+            return CompletableFuture.completedFuture(databaseBulkhead.call(() -> productRepository.findById(id)));
+        }
+        Batch batch;
+        CompletableFuture<Optional<Product>> product;
+        boolean leader;
+        synchronized (this) {
+            leader = open == null;
+            if (leader) {
+                open = new Batch();
+            }
+            batch = open;
+            product = batch.products.computeIfAbsent(id, missing -> new CompletableFuture<>());
+            if (batch.products.size() >= maxSize) {
+                open = null;
+                batch.full.countDown();
+            }
+        }
+        if (leader) {
+            awaitFull(batch);
+            synchronized (this) {
+                if (open == batch) {
+                    open = null;
+                }
+            }
+            batch.load();
+        }
+        return product;
+    }
+
+    /**
+     * Reads the ids with one query, mapping the ones that do not exist to empty.
+     */
+    public Map<UUID, Optional<Product>> loadAll(Collection<UUID> ids) {
+        Map<UUID, Optional<Product>> products = new HashMap<>();
+        ids.forEach(id -> products.put(id, Optional.empty()));
+        databaseBulkhead.call(() -> productRepository.findAllById(ids))
+                .forEach(product -> products.put(product.getId(), Optional.of(product)));
+        return products;
+    }
+
+    private void awaitFull(Batch batch) {
+        try {
+            batch.full.await(window.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Batch {
+
+        private final Map<UUID, CompletableFuture<Optional<Product>>> products = new HashMap<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+
+        /**
+         * Completes every id of the batch. Only called once the batch is closed to new ids.
+         */
+        private void load() {
+            Map<UUID, Optional<Product>> found;
+            try {
+                found = loadAll(products.keySet());
+            } catch (RuntimeException | Error e) {
+                products.values().forEach(product -> product.completeExceptionally(e));
+                return;
+            }
+            products.forEach((id, product) -> product.complete(found.get(id)));
+        }
+    }
+}
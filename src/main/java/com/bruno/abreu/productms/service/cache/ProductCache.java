@@ -0,0 +1,188 @@
+package com.bruno.abreu.productms.service.cache;
+
+import com.bruno.abreu.productms.config.ProductCacheProperties;
+import com.bruno.abreu.productms.exception.ProductNotFound;
+import com.bruno.abreu.productms.model.Product;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded read-through cache for products looked up by id. Misses are cached too, as empty entries with
+ * their own (shorter) time to live, so repeated lookups of an unknown id do not reach the database.
+ * <p>
+ * With a {@link SharedProductCache} this is the near cache of each instance: its misses go to the shared
+ * tier before the loader, and writes on any instance evict the product from all of them. Concurrent misses
+ * of the same id on one instance wait for a single load.
+ * <p>
+ * Entries are futures. A miss only puts an incomplete future in the map, and the caller that put it loads
+ * the product on its own thread afterwards, so no map lock is held during the batch window, the query or
+ * the shared tier lease, and the load keeps the caller's replica routing and database permit. The other
+ * callers wait on the future.
+ */
+public class ProductCache {
+
+    private final AsyncCache<UUID, Optional<Product>> cache;
+    private final SharedProductCache shared;
+
+    public ProductCache(ProductCacheProperties properties) {
+        this(properties, null);
+    }
+
+    public ProductCache(ProductCacheProperties properties, SharedProductCache shared) {
+        long ttl = properties.getTtl().toNanos();
+        long negativeTtl = properties.getNegativeTtl().toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new Expiry<UUID, Optional<Product>>() {
+                    @Override
+                    public long expireAfterCreate(UUID id, Optional<Product> product, long currentTime) {
+                        return product.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(UUID id, Optional<Product> product, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(id, product, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(UUID id, Optional<Product> product, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+        this.shared = shared;
+        if (shared != null) {
+            shared.subscribe(this::evict, this::evictAll);
+        }
+    }
+
+    public Product get(UUID id, Function<UUID, CompletableFuture<Optional<Product>>> loader) {
+        CompletableFuture<Optional<Product>> loading = new CompletableFuture<>();
+        CompletableFuture<Optional<Product>> product = cache.get(id, (missing, executor) -> loading);
+        if (product == loading) {
+            load(id, loader, loading);
+        }
+        return join(product).orElseThrow(ProductNotFound::new);
+    }
+
+    /**
+     * Returns the products of {@code ids}, loading all the ones not cached with a single call to the loader.
+     * Ids that do not exist map to empty.
+     */
+    public Map<UUID, Optional<Product>> getAll(Collection<UUID> ids,
+                                               Function<Collection<UUID>, Map<UUID, Optional<Product>>> loader) {
+        return join(cache.getAll(ids, (missing, executor) -> {
+            List<UUID> missingIds = new ArrayList<>();
+            missing.forEach(missingIds::add);
+            try {
+                return CompletableFuture.completedFuture(
+                        shared == null ? loader.apply(missingIds) : shared.getAll(missingIds, loader));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }));
+    }
+
+    /**
+     * Returns the cached product without loading it or waiting for a load in progress, or null when the id
+     * is not cached.
+     *
+     * @throws ProductNotFound if the id is cached as missing
+     */
+    public Product peek(UUID id) {
+        CompletableFuture<Optional<Product>> product = cache.getIfPresent(id);
+        if (product == null || !product.isDone() || product.isCompletedExceptionally()) {
+            return null;
+        }
+        return product.join().orElseThrow(ProductNotFound::new);
+    }
+
+    /**
+     * Evicts written products here and from every other instance, and keeps loads that read them before the
+     * write from caching the old versions in the shared tier.
+     */
+    public void written(Collection<Product> products) {
+        if (shared != null) {
+            shared.written(products);
+        }
+        evict(products.stream().map(Product::getId).collect(Collectors.toList()));
+    }
+
+    /**
+     * Caches deleted ids as missing here and on every other instance.
+     */
+    public void deleted(Collection<UUID> ids) {
+        if (shared != null) {
+            shared.deleted(ids);
+        }
+        ids.forEach(this::evict);
+    }
+
+    /**
+     * Evicts the id from this instance only.
+     */
+    public void evict(UUID id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    /**
+     * Evicts the ids from this instance only.
+     */
+    public void evict(Collection<UUID> ids) {
+        cache.synchronous().invalidateAll(ids);
+    }
+
+    public void evictAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public AsyncCache<UUID, Optional<Product>> getNativeCache() {
+        return cache;
+    }
+
+    /**
+     * Completes {@code loading} with the product, through the shared tier when there is one. A failed load
+     * fails the future, which drops it from the cache so the next lookup tries again.
+     */
+    private void load(UUID id, Function<UUID, CompletableFuture<Optional<Product>>> loader,
+                      CompletableFuture<Optional<Product>> loading) {
+        try {
+            CompletableFuture<Optional<Product>> loaded = shared == null
+                    ? loader.apply(id)
+                    : CompletableFuture.completedFuture(shared.get(id, missing -> join(loader.apply(missing))));
+            loaded.whenComplete((product, failure) -> {
+                if (failure == null) {
+                    loading.complete(product);
+                } else {
+                    loading.completeExceptionally(failure);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+}
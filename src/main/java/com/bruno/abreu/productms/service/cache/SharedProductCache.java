@@ -0,0 +1,422 @@
+package com.bruno.abreu.productms.service.cache;
+
+import com.bruno.abreu.productms.config.ProductCacheProperties;
+import com.bruno.abreu.productms.model.Product;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateAdapter;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.math.BigDecimal;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Second level of {@link ProductCache}, shared by every instance through Redis.
+ * <p>
+ * Each product is a hash with a version and a state: a product, a missing id, or a floor left by a write.
+ * Entries are only replaced by newer versions, so a load that read the row before a concurrent write cannot
+ * cache it once the write has set its floor, and a floor is replaced by the first load at or past its
+ * version. A deleted id is cached as missing with the highest version, so no late load brings it back.
+ * <p>
+ * Writes are broadcast for the other instances to evict their near cache, which is also cleared whenever
+ * the subscription reconnects, since broadcasts sent meanwhile are lost. Concurrent misses of the same id
+ * on several instances are collapsed by a lease: the instance holding it loads the product and the others
+ * poll the shared tier until it is there, or load it themselves once load-timeout has passed.
+ * <p>
+ * Redis failures are counted and the read falls back to the loader, so an outage only costs database reads.
+ */
+public class SharedProductCache implements MeterBinder, AutoCloseable {
+
+    static final long MISSING_VERSION = -1;
+    static final long DELETED_VERSION = Long.MAX_VALUE;
+
+    private static final String PRODUCT = "product";
+    private static final String MISSING = "missing";
+    private static final String FLOOR = "floor";
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    /**
+     * KEYS[1] the entry; ARGV version, state, time to live in ms, then the product fields and values.
+     */
+    private static final String PUT = String.join("\n",
+            "local current = redis.call('HMGET', KEYS[1], 'version', 'state')",
+            "if current[1] then",
+            "  local version = tonumber(current[1])",
+            "  local put = tonumber(ARGV[1])",
+            "  if version > put or (version == put and current[2] ~= 'floor') then",
+            "    return 0",
+            "  end",
+            "  redis.call('DEL', KEYS[1])",
+            "end",
+            "redis.call('HSET', KEYS[1], 'version', ARGV[1], 'state', ARGV[2], unpack(ARGV, 4))",
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3])",
+            "return 1");
+
+    private static final String RELEASE = String.join("\n",
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then",
+            "  return redis.call('DEL', KEYS[1])",
+            "end",
+            "return 0");
+
+    private final RedisClient client;
+    private final StatefulRedisConnection<String, String> connection;
+    private final RedisCommands<String, String> commands;
+    private final StatefulRedisPubSubConnection<String, String> subscription;
+    private final ExecutorService listener;
+    private final String keyPrefix;
+    private final String channel;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final Duration timeout;
+    private final Duration loadTimeout;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder leaseWaits = new LongAdder();
+
+    public SharedProductCache(ProductCacheProperties properties) {
+        ProductCacheProperties.Shared shared = properties.getShared();
+        RedisURI uri = RedisURI.create(shared.getUrl());
+        uri.setTimeout(shared.getTimeout());
+        this.client = RedisClient.create(uri);
+        // Commands fail right away while disconnected instead of queueing, so reads go to the database
+        client.setOptions(ClientOptions.builder()
+                .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                .build());
+        this.connection = client.connect();
+        this.commands = connection.sync();
+        this.subscription = client.connectPubSub();
+        // Lettuce delivers messages on its event loop, which must not wait on a near cache load in progress
+        this.listener = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "product-cache-invalidations");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.keyPrefix = shared.getKeyPrefix();
+        this.channel = shared.getKeyPrefix() + "invalidations";
+        this.ttl = shared.getTtl();
+        this.negativeTtl = properties.getNegativeTtl();
+        this.timeout = shared.getTimeout();
+        this.loadTimeout = shared.getLoadTimeout();
+    }
+
+    /**
+     * Hands the ids written on any instance to {@code evict}, and calls {@code evictAll} when the
+     * subscription reconnects.
+     */
+    public void subscribe(Consumer<UUID> evict, Runnable evictAll) {
+        subscription.addListener(new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String channel, String message) {
+                listener.execute(() -> {
+                    for (String id : message.split(",")) {
+                        invalidations.increment();
+                        evict.accept(UUID.fromString(id));
+                    }
+                });
+            }
+        });
+        client.addListener(new RedisConnectionStateAdapter() {
+            @Override
+            public void onRedisConnected(RedisChannelHandler<?, ?> connection, SocketAddress socketAddress) {
+                if (connection == subscription) {
+                    listener.execute(evictAll);
+                }
+            }
+        });
+        subscription.sync().subscribe(channel);
+    }
+
+    /**
+     * Returns the cached product, loading and caching it on a miss. Waiting for another instance's lease
+     * sleeps the calling thread, so this must not run under a lock; {@link ProductCache} calls it outside its
+     * map.
+     */
+    public Optional<Product> get(UUID id, Function<UUID, Optional<Product>> loader) {
+        Optional<Product> cached = read(id);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        String lease = keyPrefix + "lease:" + id;
+        String token = UUID.randomUUID().toString();
+        boolean leased = acquire(lease, token);
+        if (!leased) {
+            leaseWaits.increment();
+        }
+        long deadline = System.nanoTime() + loadTimeout.toNanos();
+        while (!leased && System.nanoTime() < deadline) {
+            if (!pause()) {
+                break;
+            }
+            // The holder puts the product before releasing the lease, so once it is ours the product is
+            // either there or was never loaded
+            leased = acquire(lease, token);
+            cached = read(id);
+            if (cached != null) {
+                if (leased) {
+                    release(lease, token);
+                }
+                return cached;
+            }
+        }
+        try {
+            Optional<Product> loaded = loader.apply(id);
+            await(List.of(loaded.isPresent()
+                    ? put(connection.async(), loaded.get())
+                    : put(connection.async(), id, MISSING_VERSION, MISSING, negativeTtl)));
+            return loaded;
+        } finally {
+            if (leased) {
+                release(lease, token);
+            }
+        }
+    }
+
+    /**
+     * Returns the products of {@code ids}, loading all the ones not cached with a single call to the loader.
+     * Reads and puts are pipelined; unlike {@link #get} there is no lease, concurrent lookups of the same
+     * missing ids each load them.
+     */
+    public Map<UUID, Optional<Product>> getAll(Collection<UUID> ids,
+                                               Function<Collection<UUID>, Map<UUID, Optional<Product>>> loader) {
+        RedisAsyncCommands<String, String> async = connection.async();
+        Map<UUID, RedisFuture<Map<String, String>>> entries = new LinkedHashMap<>();
+        ids.forEach(id -> entries.put(id, async.hgetall(key(id))));
+        await(new ArrayList<>(entries.values()));
+        Map<UUID, Optional<Product>> products = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        entries.forEach((id, entry) -> {
+            Optional<Product> cached = cached(id, entry);
+            if (cached == null) {
+                missing.add(id);
+            } else {
+                products.put(id, cached);
+            }
+        });
+        hits.add(products.size());
+        misses.add(missing.size());
+        if (!missing.isEmpty()) {
+            Map<UUID, Optional<Product>> loaded = loader.apply(missing);
+            List<RedisFuture<?>> puts = new ArrayList<>(loaded.size());
+            loaded.forEach((id, product) -> puts.add(product.isPresent()
+                    ? put(async, product.get())
+                    : put(async, id, MISSING_VERSION, MISSING, negativeTtl)));
+            await(puts);
+            products.putAll(loaded);
+        }
+        return products;
+    }
+
+    /**
+     * Sets a floor at the version of each written product and broadcasts their ids, in one round trip.
+     */
+    public void written(Collection<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        RedisAsyncCommands<String, String> async = connection.async();
+        List<RedisFuture<?>> futures = new ArrayList<>(products.size() + 1);
+        products.forEach(product -> futures.add(put(async, product.getId(), product.getVersion(), FLOOR, ttl)));
+        futures.add(async.publish(channel, products.stream()
+                .map(product -> product.getId().toString())
+                .collect(Collectors.joining(","))));
+        await(futures);
+    }
+
+    /**
+     * Caches the ids as deleted and broadcasts them, in one round trip.
+     */
+    public void deleted(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        RedisAsyncCommands<String, String> async = connection.async();
+        List<RedisFuture<?>> futures = new ArrayList<>(ids.size() + 1);
+        ids.forEach(id -> futures.add(put(async, id, DELETED_VERSION, MISSING, ttl)));
+        futures.add(async.publish(channel, ids.stream().map(UUID::toString).collect(Collectors.joining(","))));
+        await(futures);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::doubleValue)
+                .tags("cache", "products-shared", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::doubleValue)
+                .tags("cache", "products-shared", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("product.cache.shared.errors", errors, LongAdder::doubleValue)
+                .description("Shared cache commands that failed or timed out")
+                .register(registry);
+        FunctionCounter.builder("product.cache.shared.invalidations", invalidations, LongAdder::doubleValue)
+                .description("Ids evicted from the near cache on a broadcast")
+                .register(registry);
+        FunctionCounter.builder("product.cache.shared.lease.waits", leaseWaits, LongAdder::doubleValue)
+                .description("Misses that waited for another instance's lease instead of loading")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        subscription.close();
+        connection.close();
+        client.shutdown();
+        listener.shutdown();
+    }
+
+    /**
+     * Returns the cached entry, or null when there is none to use.
+     */
+    private Optional<Product> read(UUID id) {
+        Map<String, String> entry;
+        try {
+            entry = commands.hgetall(key(id));
+        } catch (RedisException e) {
+            errors.increment();
+            return null;
+        }
+        return cached(id, entry);
+    }
+
+    /**
+     * Returns the entry read by a pipelined command, or null when there is none to use or the command failed.
+     */
+    private Optional<Product> cached(UUID id, RedisFuture<Map<String, String>> future) {
+        Map<String, String> entry;
+        try {
+            entry = future.toCompletableFuture().getNow(null);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return entry == null ? null : cached(id, entry);
+    }
+
+    private Optional<Product> cached(UUID id, Map<String, String> entry) {
+        String state = entry.get("state");
+        if (PRODUCT.equals(state)) {
+            return Optional.of(product(id, entry));
+        }
+        return MISSING.equals(state) ? Optional.empty() : null;
+    }
+
+    /**
+     * Takes the lease on loading an id, or lets the caller load it when Redis does not answer.
+     */
+    private boolean acquire(String lease, String token) {
+        try {
+            return commands.set(lease, token, SetArgs.Builder.nx().px(loadTimeout)) != null;
+        } catch (RedisException e) {
+            errors.increment();
+            return true;
+        }
+    }
+
+    private void release(String lease, String token) {
+        try {
+            commands.eval(RELEASE, ScriptOutputType.INTEGER, new String[]{lease}, token);
+        } catch (RedisException e) {
+            errors.increment();
+        }
+    }
+
+    private RedisFuture<Long> put(RedisAsyncCommands<String, String> async, Product product) {
+        return put(async, product.getId(), product.getVersion(), PRODUCT, ttl,
+                "name", product.getName(),
+                "description", product.getDescription(),
+                "price", product.getPrice().toPlainString(),
+                "createdAt", text(product.getCreatedAt()),
+                "updatedAt", text(product.getUpdatedAt()));
+    }
+
+    private RedisFuture<Long> put(RedisAsyncCommands<String, String> async, UUID id, long version, String state,
+                                  Duration ttl, String... fields) {
+        String[] args = new String[3 + fields.length];
+        args[0] = Long.toString(version);
+        args[1] = state;
+        args[2] = Long.toString(ttl.toMillis());
+        System.arraycopy(fields, 0, args, 3, fields.length);
+        return async.eval(PUT, ScriptOutputType.INTEGER, new String[]{key(id)}, args);
+    }
+
+    private void await(List<RedisFuture<?>> futures) {
+        try {
+            if (!LettuceFutures.awaitAll(timeout, futures.toArray(new RedisFuture[0]))) {
+                errors.increment();
+            }
+        } catch (RedisException e) {
+            errors.increment();
+        }
+    }
+
+    private String key(UUID id) {
+        return keyPrefix + "product:" + id;
+    }
+
+    private static Product product(UUID id, Map<String, String> entry) {
+        return Product.builder()
+                .id(id)
+                .name(entry.get("name"))
+                .description(entry.get("description"))
+                .price(new BigDecimal(entry.get("price")))
+                .version(Long.parseLong(entry.get("version")))
+                .createdAt(instant(entry.get("createdAt")))
+                .updatedAt(instant(entry.get("updatedAt")))
+                .build();
+    }
+
+    private static String text(Instant instant) {
+        return instant == null ? "" : instant.toString();
+    }
+
+    private static Instant instant(String value) {
+        return value == null || value.isEmpty() ? null : Instant.parse(value);
+    }
+
+    /**
+     * Waits before polling again, returning false if interrupted.
+     */
+    private static boolean pause() {
+        try {
+            Thread.sleep(POLL_INTERVAL.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
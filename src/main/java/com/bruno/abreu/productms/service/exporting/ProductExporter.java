@@ -0,0 +1,112 @@
+package com.bruno.abreu.productms.service.exporting;
+
+import com.bruno.abreu.productms.config.ExportProperties;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.repository.ProductExportRepository;
+import com.bruno.abreu.productms.service.bulkhead.DatabaseBulkhead;
+import com.bruno.abreu.productms.service.replica.ReplicaRouting;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes the whole catalog to a stream as NDJSON (the product JSON, one per line) or as CSV with an
+ * id,name,description,price header. The catalog is read from a replica in keyset pages ordered by id, and
+ * the database permit and the connection are only held while a page is read, never while it is written,
+ * so a slow download neither starves the bulkhead nor pins a pooled connection. Memory stays bounded by
+ * the page size. Each page is a consistent read, the whole export is not: a product changed while the
+ * export runs shows up in the version read by its page.
+ */
+@Service
+@Profile("!reactive")
+public class ProductExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ProductExportRepository productExportRepository;
+    private final ExportProperties exportProperties;
+    private final DatabaseBulkhead databaseBulkhead;
+    private final ReplicaRouting replicaRouting;
+    private final ObjectWriter productWriter;
+
+    public ProductExporter(ProductExportRepository productExportRepository, ExportProperties exportProperties,
+                           DatabaseBulkhead databaseBulkhead, ReplicaRouting replicaRouting,
+                           ObjectMapper objectMapper) {
+        this.productExportRepository = productExportRepository;
+        this.exportProperties = exportProperties;
+        this.databaseBulkhead = databaseBulkhead;
+        this.replicaRouting = replicaRouting;
+        // Rows go to the shared buffered writer, which must neither be closed nor flushed after each one
+        this.productWriter = objectMapper.writerFor(Product.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void export(OutputStream outputStream, ExportFormat format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == ExportFormat.CSV) {
+            writer.write("id,name,description,price\n");
+        }
+        int pageSize = exportProperties.getPageSize();
+        UUID after = null;
+        List<Product> page;
+        do {
+            UUID from = after;
+            try (ReplicaRouting.Scope scope = replicaRouting.replicaRead()) {
+                page = databaseBulkhead.call(() -> productExportRepository.findPage(from, pageSize));
+            }
+            for (Product product : page) {
+                if (format == ExportFormat.CSV) {
+                    writeCsv(writer, product);
+                } else {
+                    productWriter.writeValue(writer, product);
+                    writer.write('\n');
+                }
+            }
+            after = page.isEmpty() ? null : page.get(page.size() - 1).getId();
+        } while (page.size() == pageSize);
+        writer.flush();
+    }
+
+    private static void writeCsv(Writer writer, Product product) throws IOException {
+        writer.write(product.getId().toString());
+        writer.write(',');
+        writeCsvField(writer, product.getName());
+        writer.write(',');
+        writeCsvField(writer, product.getDescription());
+        writer.write(',');
+        writer.write(product.getPrice().toPlainString());
+        writer.write('\n');
+    }
+
+    /**
+     * Quotes the field only when it holds a comma, quote or line break, doubling the quotes (RFC 4180).
+     */
+    private static void writeCsvField(Writer writer, String field) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(field);
+            return;
+        }
+        writer.write('"');
+        writer.write(field.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
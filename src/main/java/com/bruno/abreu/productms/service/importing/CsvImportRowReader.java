@@ -0,0 +1,72 @@
+package com.bruno.abreu.productms.service.importing;
+
+import com.bruno.abreu.productms.exception.InvalidImport;
+import com.bruno.abreu.productms.model.Product;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads products from CSV with a header row naming the name, description and price columns, in any order.
+ * Other columns, including id, are ignored.
+ */
+class CsvImportRowReader implements ImportRowReader {
+
+    private final CsvRecordReader records;
+    private final int name;
+    private final int description;
+    private final int price;
+
+    CsvImportRowReader(Reader reader) throws IOException {
+        this.records = new CsvRecordReader(reader);
+        List<String> header = records.read();
+        Map<String, Integer> columns = new HashMap<>();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) {
+                columns.putIfAbsent(header.get(i).strip().toLowerCase(Locale.ROOT), i);
+            }
+        }
+        if (!columns.keySet().containsAll(List.of("name", "description", "price"))) {
+            throw new InvalidImport("CSV header must name the name, description and price columns");
+        }
+        this.name = columns.get("name");
+        this.description = columns.get("description");
+        this.price = columns.get("price");
+    }
+
+    @Override
+    public ImportRow next() throws IOException {
+        List<String> fields;
+        do {
+            fields = records.read();
+            if (fields == null) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.get(0).isBlank());
+
+        long line = records.getRecordLine();
+        BigDecimal parsedPrice = null;
+        String priceField = field(fields, price);
+        if (priceField != null && !priceField.isBlank()) {
+            try {
+                parsedPrice = new BigDecimal(priceField.strip());
+            } catch (NumberFormatException e) {
+                return ImportRow.failed(line, "Price must be a number");
+            }
+        }
+        return ImportRow.of(line, Product.builder()
+                .name(field(fields, name))
+                .description(field(fields, description))
+                .price(parsedPrice)
+                .build());
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index) : null;
+    }
+}
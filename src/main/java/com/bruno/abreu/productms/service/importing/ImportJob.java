@@ -0,0 +1,129 @@
+package com.bruno.abreu.productms.service.importing;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Progress of one import. Counters are updated by the import task and read by GET /imports/{jobId} while
+ * it runs.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final UUID id = UUID.randomUUID();
+    private final ImportFormat format;
+    private final Instant startedAt = Instant.now();
+    private final int maxRejects;
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsImported = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final List<ImportReject> rejects = new ArrayList<>();
+    private volatile Status status = Status.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    ImportJob(ImportFormat format, int maxRejects) {
+        this.format = format;
+        this.maxRejects = maxRejects;
+    }
+
+    void read() {
+        rowsRead.incrementAndGet();
+    }
+
+    void imported(int rows) {
+        rowsImported.addAndGet(rows);
+    }
+
+    void reject(long line, List<String> errors) {
+        rowsRejected.incrementAndGet();
+        synchronized (rejects) {
+            if (rejects.size() < maxRejects) {
+                rejects.add(new ImportReject(line, errors.stream().sorted().collect(Collectors.toList()).toString()));
+            }
+        }
+    }
+
+    void complete() {
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public ImportFormat getFormat() {
+        return format;
+    }
+
+    @JsonProperty("started_at")
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    @JsonProperty("finished_at")
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    @JsonProperty("rows_read")
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    @JsonProperty("rows_imported")
+    public long getRowsImported() {
+        return rowsImported.get();
+    }
+
+    @JsonProperty("rows_rejected")
+    public long getRowsRejected() {
+        return rowsRejected.get();
+    }
+
+    /**
+     * Imported rows per second since the job started, or over its whole run once it finished.
+     */
+    @JsonProperty("rows_per_second")
+    public long getRowsPerSecond() {
+        Instant end = finishedAt == null ? Instant.now() : finishedAt;
+        long millis = Math.max(Duration.between(startedAt, end).toMillis(), 1);
+        return getRowsImported() * 1000 / millis;
+    }
+
+    /**
+     * The first product.import.max-rejects rejected rows, by line number.
+     */
+    public List<ImportReject> getRejects() {
+        synchronized (rejects) {
+            return List.copyOf(rejects);
+        }
+    }
+
+    public String getError() {
+        return error;
+    }
+}
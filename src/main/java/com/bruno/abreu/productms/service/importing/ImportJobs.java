@@ -0,0 +1,55 @@
+package com.bruno.abreu.productms.service.importing;
+
+import com.bruno.abreu.productms.config.ImportProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * In-memory registry of import jobs. Running jobs are always kept; beyond product.import.retained-jobs the
+ * oldest finished jobs are dropped.
+ */
+@Component
+public class ImportJobs {
+
+    private final ImportProperties importProperties;
+    private final Map<UUID, ImportJob> jobs = new LinkedHashMap<>();
+
+    public ImportJobs(ImportProperties importProperties) {
+        this.importProperties = importProperties;
+    }
+
+    public synchronized ImportJob start(ImportFormat format) {
+        ImportJob job = new ImportJob(format, importProperties.getMaxRejects());
+        jobs.put(job.getId(), job);
+        long finished = jobs.values().stream().filter(j -> j.getStatus() != ImportJob.Status.RUNNING).count();
+        Iterator<ImportJob> oldest = jobs.values().iterator();
+        while (finished > importProperties.getRetainedJobs() && oldest.hasNext()) {
+            if (oldest.next().getStatus() != ImportJob.Status.RUNNING) {
+                oldest.remove();
+                finished--;
+            }
+        }
+        return job;
+    }
+
+    public synchronized Optional<ImportJob> find(UUID id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * All known jobs, newest first.
+     */
+    public synchronized List<ImportJob> findAll() {
+        List<ImportJob> all = new ArrayList<>(jobs.values());
+        Collections.reverse(all);
+        return all;
+    }
+}
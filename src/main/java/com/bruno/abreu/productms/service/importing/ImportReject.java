@@ -0,0 +1,13 @@
+package com.bruno.abreu.productms.service.importing;
+
+import lombok.Value;
+
+/**
+ * A rejected row, with its errors formatted like the messages of a rejected batch item.
+ */
+@Value
+public class ImportReject {
+
+    long line;
+    String message;
+}
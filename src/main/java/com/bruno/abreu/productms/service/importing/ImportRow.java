@@ -0,0 +1,25 @@
+package com.bruno.abreu.productms.service.importing;
+
+import com.bruno.abreu.productms.model.Product;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One row read from an import, either a product still to be validated or the reason it could not be read.
+ */
+@Value
+class ImportRow {
+
+    long line;
+    Product product;
+    List<String> errors;
+
+    static ImportRow of(long line, Product product) {
+        return new ImportRow(line, product, List.of());
+    }
+
+    static ImportRow failed(long line, String error) {
+        return new ImportRow(line, null, List.of(error));
+    }
+}
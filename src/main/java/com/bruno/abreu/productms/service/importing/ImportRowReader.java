@@ -0,0 +1,14 @@
+package com.bruno.abreu.productms.service.importing;
+
+import java.io.IOException;
+
+/**
+ * Reads an import body one row at a time, so only the current row is held in memory.
+ */
+interface ImportRowReader {
+
+    /**
+     * Returns the next row, or null at the end of the input.
+     */
+    ImportRow next() throws IOException;
+}
@@ -0,0 +1,42 @@
+package com.bruno.abreu.productms.service.importing;
+
+import com.bruno.abreu.productms.model.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads one product JSON object per line. A line that is not a valid product only rejects that row.
+ */
+class NdjsonImportRowReader implements ImportRowReader {
+
+    private final BufferedReader reader;
+    private final ObjectReader productReader;
+    private long line;
+
+    NdjsonImportRowReader(BufferedReader reader, ObjectReader productReader) {
+        this.reader = reader;
+        this.productReader = productReader;
+    }
+
+    @Override
+    public ImportRow next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+            if (text == null) {
+                return null;
+            }
+        } while (text.isBlank());
+
+        try {
+            Product product = productReader.readValue(text);
+            return product == null ? ImportRow.failed(line, "Product must not be null") : ImportRow.of(line, product);
+        } catch (JsonProcessingException e) {
+            return ImportRow.failed(line, "Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.bruno.abreu.productms.service.importing;
+
+import com.bruno.abreu.productms.config.ImportProperties;
+import com.bruno.abreu.productms.exception.ImportTooLarge;
+import com.bruno.abreu.productms.exception.InvalidImport;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports products from a CSV or NDJSON stream. Rows are parsed and validated one at a time, and valid rows
+ * are committed in chunks of product.import.chunk-size through {@link ProductService#createAll}, so memory
+ * stays bounded by one chunk and a failure only loses the chunk in flight. Invalid rows are rejected and
+ * reported on the job without stopping the import.
+ * <p>
+ * Requests go through {@link #submit}, which runs the import in the background on the application task
+ * executor; the job in {@link ImportJobs} is how callers follow it.
+ */
+@Service
+@Profile("!reactive")
+public class ProductImporter {
+
+    private final ProductService productService;
+    private final ImportJobs importJobs;
+    private final ImportProperties importProperties;
+    private final Validator validator;
+    private final ObjectReader productReader;
+    private final TaskExecutor taskExecutor;
+
+    public ProductImporter(ProductService productService,
+                           ImportJobs importJobs,
+                           ImportProperties importProperties,
+                           Validator validator,
+                           ObjectMapper objectMapper,
+                           @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                           TaskExecutor taskExecutor) {
+        this.productService = productService;
+        this.importJobs = importJobs;
+        this.importProperties = importProperties;
+        this.validator = validator;
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Spools the body to a temporary file and imports it on the task executor, so the request is answered as
+     * soon as the body is received. A body over product.import.max-size, known from {@code contentLength}
+     * when it is not -1 or found while spooling, and a CSV header without the required columns still fail
+     * the request; any later failure is reported on the job.
+     */
+    public ImportJob submit(InputStream body, long contentLength, Charset charset, ImportFormat format) {
+        ImportJob job = importJobs.start(format);
+        long maxBytes = importProperties.getMaxSize().toBytes();
+        if (contentLength > maxBytes) {
+            throw tooLarge(job, maxBytes);
+        }
+        InputStream spooled = spool(job, body, maxBytes);
+        try {
+            ImportRowReader rows = open(job, spooled, charset, format);
+            taskExecutor.execute(() -> {
+                try (spooled) {
+                    run(job, rows);
+                } catch (IOException | RuntimeException e) {
+                    // Already recorded on the job, there is no caller left to rethrow to
+                }
+            });
+        } catch (RuntimeException e) {
+            if (job.getStatus() == ImportJob.Status.RUNNING) {
+                job.fail("Import could not be started");
+            }
+            closeQuietly(spooled);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Copies at most {@code maxBytes} of the body to a file deleted once the returned stream is closed.
+     */
+    private InputStream spool(ImportJob job, InputStream body, long maxBytes) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("product-import-", ".tmp");
+            long copied = 0;
+            byte[] buffer = new byte[64 * 1024];
+            try (OutputStream out = Files.newOutputStream(file)) {
+                for (int read = body.read(buffer); read != -1; read = body.read(buffer)) {
+                    copied += read;
+                    if (copied > maxBytes) {
+                        throw tooLarge(job, maxBytes);
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            return Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            deleteQuietly(file);
+            job.fail("Could not read the import body: " + e.getMessage());
+            throw new InvalidImport(job.getError());
+        } catch (ImportTooLarge e) {
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    private static ImportTooLarge tooLarge(ImportJob job, long maxBytes) {
+        ImportTooLarge tooLarge = new ImportTooLarge(maxBytes);
+        job.fail(tooLarge.getMessage());
+        return tooLarge;
+    }
+
+    private ImportRowReader open(ImportJob job, InputStream body, Charset charset, ImportFormat format) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, charset), 64 * 1024);
+        try {
+            return format == ImportFormat.CSV
+                    ? new CsvImportRowReader(reader)
+                    : new NdjsonImportRowReader(reader, productReader);
+        } catch (InvalidImport e) {
+            job.fail(e.getMessage());
+            throw e;
+        } catch (IOException e) {
+            job.fail("Could not read the import body: " + e.getMessage());
+            throw new InvalidImport(job.getError());
+        }
+    }
+
+    private void run(ImportJob job, ImportRowReader rows) {
+        try {
+            List<Product> chunk = new ArrayList<>(importProperties.getChunkSize());
+            for (ImportRow row = rows.next(); row != null; row = rows.next()) {
+                job.read();
+                List<String> errors = validate(row);
+                if (!errors.isEmpty()) {
+                    job.reject(row.getLine(), errors);
+                    continue;
+                }
+                chunk.add(row.getProduct());
+                if (chunk.size() == importProperties.getChunkSize()) {
+                    commit(chunk, job);
+                    chunk = new ArrayList<>(importProperties.getChunkSize());
+                }
+            }
+            commit(chunk, job);
+            job.complete();
+        } catch (InvalidImport e) {
+            job.fail(e.getMessage());
+            throw e;
+        } catch (IOException e) {
+            job.fail("Could not read the import body: " + e.getMessage());
+            throw new InvalidImport(job.getError());
+        } catch (RuntimeException e) {
+            job.fail("Import failed after " + job.getRowsImported() + " rows");
+            throw e;
+        }
+    }
+
+    private List<String> validate(ImportRow row) {
+        if (row.getProduct() == null) {
+            return row.getErrors();
+        }
+        List<String> errors = new ArrayList<>();
+        validator.validate(row.getProduct()).forEach(violation -> errors.add(violation.getMessage()));
+        return errors;
+    }
+
+    private void commit(List<Product> chunk, ImportJob job) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        productService.createAll(chunk);
+        job.imported(chunk.size());
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // The spool file is deleted on close, a failure here leaves it to the temp directory cleanup
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Left to the temp directory cleanup
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.bruno.abreu.productms.service.outbox;
+
+import com.bruno.abreu.productms.model.ProductEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent events in memory, for tests and local runs.
+ */
+public class InMemoryProductEventSink implements ProductEventSink {
+
+    private final int capacity;
+    private final Deque<ProductEvent> events = new ArrayDeque<>();
+
+    public InMemoryProductEventSink(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void publish(List<ProductEvent> published) {
+        for (ProductEvent event : published) {
+            if (events.size() == capacity) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    public synchronized List<ProductEvent> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,95 @@
+package com.bruno.abreu.productms.service.outbox;
+
+import com.bruno.abreu.productms.config.ProductEventProperties;
+import com.bruno.abreu.productms.model.ProductEvent;
+import com.bruno.abreu.productms.repository.ProductEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes committed outbox events to the sink in batches.
+ * <p>
+ * Each batch is one transaction holding the cursor row lock: the unpublished events get the next offsets,
+ * go to the sink and are marked with their offset. Only one relay runs the loop at a time, even with several
+ * instances, so offsets are gap free and grow in publication order. A sink failure rolls the batch back and
+ * it is retried on the next run.
+ */
+public class ProductEventRelay implements SchedulingConfigurer {
+
+    private final ProductEventRepository productEventRepository;
+    private final ProductEventSink sink;
+    private final TransactionOperations transactionOperations;
+    private final ProductEventProperties properties;
+    private final Counter published;
+
+    public ProductEventRelay(ProductEventRepository productEventRepository,
+                             ProductEventSink sink,
+                             TransactionOperations transactionOperations,
+                             ProductEventProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.productEventRepository = productEventRepository;
+        this.sink = sink;
+        this.transactionOperations = transactionOperations;
+        this.properties = properties;
+        this.published = Counter.builder("product.events.published")
+                .description("Outbox events published to the sink")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        if (properties.isRelayEnabled()) {
+            registrar.addFixedDelayTask(this::run, properties.getRelayInterval().toMillis());
+            registrar.addFixedDelayTask(this::prune, properties.getPruneInterval().toMillis());
+        }
+    }
+
+    /**
+     * Publishes every pending event.
+     */
+    public void run() {
+        int count;
+        do {
+            count = relay();
+        } while (count == properties.getRelayBatchSize());
+    }
+
+    /**
+     * Deletes the published events past the retention and returns how many. It runs on its own, much slower
+     * schedule than the relay, since events only expire after days.
+     */
+    public int prune() {
+        return transactionOperations.execute(status ->
+                productEventRepository.deletePublishedBefore(Instant.now().minus(properties.getRetention())));
+    }
+
+    /**
+     * Publishes one batch of pending events and returns its size.
+     */
+    public int relay() {
+        Integer count = transactionOperations.execute(status -> {
+            long offset = productEventRepository.lockLastOffset();
+            List<ProductEvent> pending = productEventRepository.findUnpublished(properties.getRelayBatchSize());
+            if (pending.isEmpty()) {
+                return 0;
+            }
+            List<ProductEvent> events = new ArrayList<>(pending.size());
+            for (ProductEvent event : pending) {
+                events.add(event.toBuilder().offset(++offset).build());
+            }
+            productEventRepository.assignOffsets(events);
+            productEventRepository.updateLastOffset(offset);
+            sink.publish(events);
+            return events.size();
+        });
+        published.increment(count);
+        return count;
+    }
+}
@@ -0,0 +1,15 @@
+package com.bruno.abreu.productms.service.outbox;
+
+import com.bruno.abreu.productms.model.ProductEvent;
+
+import java.util.List;
+
+/**
+ * Destination of the events published by {@link ProductEventRelay}. Delivery is at least once: a batch is
+ * published again when the relay fails to record that it was published, so consumers should skip offsets
+ * they have already seen.
+ */
+public interface ProductEventSink {
+
+    void publish(List<ProductEvent> events);
+}
@@ -0,0 +1,77 @@
+package com.bruno.abreu.productms.service.outbox;
+
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductEvent;
+import com.bruno.abreu.productms.repository.ProductEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Records product changes in the outbox. Must be called inside the transaction that makes the change, so the
+ * event exists if and only if the change was committed.
+ */
+@Component
+@Profile("!reactive")
+public class ProductEvents {
+
+    private final ProductEventRepository productEventRepository;
+    private final ObjectWriter writer;
+
+    public ProductEvents(ProductEventRepository productEventRepository, ObjectMapper objectMapper) {
+        this.productEventRepository = productEventRepository;
+        this.writer = objectMapper.writerFor(Product.class);
+    }
+
+    /**
+     * Records the products as they are after the change; their version must already be the new one.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(ProductEvent.Type type, List<Product> products) {
+        Instant now = now();
+        productEventRepository.appendAll(products.stream()
+                .map(product -> ProductEvent.builder()
+                        .type(type)
+                        .productId(product.getId())
+                        .version(product.getVersion())
+                        .occurredAt(now)
+                        .payload(toJson(product))
+                        .build())
+                .collect(Collectors.toList()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Collection<UUID> ids) {
+        Instant now = now();
+        productEventRepository.appendAll(ids.stream()
+                .map(id -> ProductEvent.builder()
+                        .type(ProductEvent.Type.DELETED)
+                        .productId(id)
+                        .occurredAt(now)
+                        .build())
+                .collect(Collectors.toList()));
+    }
+
+    private String toJson(Product product) {
+        try {
+            return writer.writeValueAsString(product);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize product " + product.getId(), e);
+        }
+    }
+
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+}
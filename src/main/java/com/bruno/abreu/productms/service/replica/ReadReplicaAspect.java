@@ -0,0 +1,29 @@
+package com.bruno.abreu.productms.service.replica;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Allows replica reads for the duration of {@link ReadReplica} methods. It runs outside the transaction
+ * advice, so the routing is in place before any connection is opened.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ReadReplicaAspect {
+
+    private final ReplicaRouting replicaRouting;
+
+    public ReadReplicaAspect(ReplicaRouting replicaRouting) {
+        this.replicaRouting = replicaRouting;
+    }
+
+    @Around("@annotation(com.bruno.abreu.productms.service.replica.ReadReplica)")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        try (ReplicaRouting.Scope scope = replicaRouting.replicaRead()) {
+            return joinPoint.proceed();
+        }
+    }
+}
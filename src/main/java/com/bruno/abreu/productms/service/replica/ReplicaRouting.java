@@ -0,0 +1,61 @@
+package com.bruno.abreu.productms.service.replica;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether the connection being opened may come from a replica: the current thread is inside a
+ * {@link ReadReplica} method, not inside a read-write transaction, and no write committed within the
+ * read-your-writes window.
+ */
+public class ReplicaRouting {
+
+    private final ThreadLocal<Boolean> replicaRead = new ThreadLocal<>();
+    private final Supplier<Duration> readYourWritesWindow;
+    private volatile long lastWrite;
+    private volatile boolean written;
+
+    public ReplicaRouting(Supplier<Duration> readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
+    /**
+     * Allows replica reads on the current thread until the returned scope is closed.
+     */
+    public Scope replicaRead() {
+        if (Boolean.TRUE.equals(replicaRead.get())) {
+            return () -> {
+            };
+        }
+        replicaRead.set(Boolean.TRUE);
+        return replicaRead::remove;
+    }
+
+    /**
+     * Records that a write committed, starting the read-your-writes window.
+     */
+    public void written() {
+        lastWrite = System.nanoTime();
+        written = true;
+    }
+
+    public boolean isReplicaRead() {
+        if (!Boolean.TRUE.equals(replicaRead.get())) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        Duration window = readYourWritesWindow.get();
+        return window.isZero() || !written || System.nanoTime() - lastWrite >= window.toNanos();
+    }
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,165 @@
+package com.bruno.abreu.productms.service.replica;
+
+import com.bruno.abreu.productms.config.ReplicaProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Opens connections on a healthy replica when {@link ReplicaRouting} allows it, and on the primary
+ * otherwise. A replica that fails to hand out a connection or a health check is skipped until a later
+ * health check succeeds, and its reads fall back to the primary meanwhile.
+ * <p>
+ * As a {@link MeterBinder} it publishes the hikaricp.* pool metrics of each replica, tagged with the
+ * replica pool name, and the number of healthy replicas.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements MeterBinder, AutoCloseable {
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReplicaRouting replicaRouting;
+    private final ReplicaProperties.Balancing balancing;
+    private final int healthCheckTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    List<HikariDataSource> replicas,
+                                    ReplicaRouting replicaRouting,
+                                    ReplicaProperties.Balancing balancing,
+                                    int healthCheckTimeoutSeconds) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).collect(Collectors.toList());
+        this.replicaRouting = replicaRouting;
+        this.balancing = balancing;
+        this.healthCheckTimeoutSeconds = healthCheckTimeoutSeconds;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return open(DataSource::getConnection);
+    }
+
+    /**
+     * Routed like {@link #getConnection()}. Hikari pools only open connections with their own credentials, so
+     * with the default pools this fails with {@link SQLFeatureNotSupportedException} wherever it is routed.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return open(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    /**
+     * Unwraps to the primary pool, so pool size and metrics lookups see the primary.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    /**
+     * Validates a connection of every replica, marking it healthy or not.
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                replica.healthy = connection.isValid(healthCheckTimeoutSeconds);
+            } catch (SQLException e) {
+                replica.healthy = false;
+            }
+        }
+    }
+
+    /**
+     * Pool names of the replicas currently considered healthy.
+     */
+    public List<String> getHealthyReplicas() {
+        return replicas.stream()
+                .filter(replica -> replica.healthy)
+                .map(replica -> replica.dataSource.getPoolName())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(registry);
+        replicas.forEach(replica -> replica.dataSource.setMetricsTrackerFactory(metrics));
+        Gauge.builder("product.db.replicas.healthy", this, routing -> routing.getHealthyReplicas().size())
+                .description("Replicas currently serving reads")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private Connection open(ConnectionOpener opener) throws SQLException {
+        if (replicaRouting.isReplicaRead()) {
+            Replica replica = select();
+            if (replica != null) {
+                try {
+                    return opener.open(replica.dataSource);
+                } catch (SQLFeatureNotSupportedException e) {
+                    throw e;
+                } catch (SQLException e) {
+                    replica.healthy = false;
+                }
+            }
+        }
+        return opener.open(primary);
+    }
+
+    private Replica select() {
+        List<Replica> healthy = replicas.stream().filter(replica -> replica.healthy).collect(Collectors.toList());
+        if (healthy.isEmpty()) {
+            return null;
+        }
+        if (balancing == ReplicaProperties.Balancing.LEAST_LOADED) {
+            return healthy.stream().min(Comparator.comparingInt(Replica::activeConnections)).orElseThrow();
+        }
+        return healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+    }
+
+    @FunctionalInterface
+    private interface ConnectionOpener {
+
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    private static class Replica {
+
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        int activeConnections() {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+    }
+}
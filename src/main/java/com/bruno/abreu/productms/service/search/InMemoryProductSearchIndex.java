@@ -0,0 +1,360 @@
+package com.bruno.abreu.productms.service.search;
+
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductField;
+import com.bruno.abreu.productms.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.support.TransactionOperations;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Embedded trigram index over product name and description.
+ * <p>
+ * A query is answered by intersecting the posting lists of its trigrams, verifying the surviving candidates
+ * with a case-insensitive substring match (the same semantics as the {@code like '%q%'} query) and ranking
+ * them by where the text matched. Without a text the price index alone is scanned; prices are kept in cents. Until the first build
+ * finishes, searches are answered by the fallback backend.
+ */
+public class InMemoryProductSearchIndex implements ProductSearchBackend {
+
+    private static final int GRAM = 3;
+    private static final BigDecimal MIN_CENTS = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal MAX_CENTS = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private final ProductSearchBackend fallback;
+    private final ProductRepository productRepository;
+    private final TransactionOperations transactionOperations;
+    private final EntityManager entityManager;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment;
+    private List<Consumer<Segment>> pending;
+
+    public InMemoryProductSearchIndex(ProductSearchBackend fallback,
+                                      ProductRepository productRepository,
+                                      TransactionOperations transactionOperations,
+                                      EntityManager entityManager) {
+        this.fallback = fallback;
+        this.productRepository = productRepository;
+        this.transactionOperations = transactionOperations;
+        this.entityManager = entityManager;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        transactionOperations.executeWithoutResult(status -> {
+            try (Stream<Product> products = productRepository.streamAll()) {
+                rebuild(products.peek(entityManager::detach));
+            }
+        });
+    }
+
+    /**
+     * Builds a fresh segment from the given products and swaps it in. Writes received while the build is
+     * running are replayed on the new segment before it becomes visible.
+     */
+    public void rebuild(Stream<Product> products) {
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Segment fresh = new Segment();
+        products.forEach(fresh::add);
+
+        lock.writeLock().lock();
+        try {
+            pending.forEach(operation -> operation.accept(fresh));
+            pending = null;
+            segment = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return segment != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> search(String q, BigDecimal minPrice, BigDecimal maxPrice) {
+        lock.readLock().lock();
+        try {
+            if (segment != null) {
+                return segment.search(q, minPrice, maxPrice);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return fallback.search(q, minPrice, maxPrice);
+    }
+
+    /**
+     * The index already holds whole products, only the fallback used while it is not ready projects.
+     */
+    @Override
+    public List<Product> search(String q, BigDecimal minPrice, BigDecimal maxPrice, Set<ProductField> fields) {
+        if (isReady()) {
+            return search(q, minPrice, maxPrice);
+        }
+        return fallback.search(q, minPrice, maxPrice, fields);
+    }
+
+    @Override
+    public void index(Product product) {
+        apply(segment -> segment.add(product));
+    }
+
+    /**
+     * Adds the whole batch under one write lock.
+     */
+    @Override
+    public void indexAll(Collection<Product> products) {
+        apply(segment -> products.forEach(segment::add));
+    }
+
+    @Override
+    public void remove(UUID id) {
+        apply(segment -> segment.remove(id));
+    }
+
+    private void apply(Consumer<Segment> operation) {
+        lock.writeLock().lock();
+        try {
+            if (segment != null) {
+                operation.accept(segment);
+            }
+            if (pending != null) {
+                pending.add(operation);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Price as a whole number of cents, so range checks are exact long comparisons. Bounds beyond the range of
+     * a long are clamped to it.
+     */
+    private static long cents(BigDecimal price, RoundingMode roundingMode) {
+        BigDecimal cents = price.movePointRight(Product.PRICE_SCALE).setScale(0, roundingMode);
+        if (cents.compareTo(MIN_CENTS) < 0) {
+            return Long.MIN_VALUE;
+        }
+        if (cents.compareTo(MAX_CENTS) > 0) {
+            return Long.MAX_VALUE;
+        }
+        return cents.longValue();
+    }
+
+    private static Set<String> grams(String text, Set<String> grams) {
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static final class Segment {
+
+        private static final int COMPACTION_THRESHOLD = 1024;
+
+        private final List<Document> documents = new ArrayList<>();
+        private final Map<UUID, Integer> docIds = new HashMap<>();
+        private final Map<String, IntList> postings = new HashMap<>();
+        private final NavigableMap<Long, Set<Integer>> prices = new TreeMap<>();
+        private int removed;
+
+        void add(Product product) {
+            remove(product.getId());
+            add(new Document(product.toBuilder().build()));
+        }
+
+        private void add(Document document) {
+            int docId = documents.size();
+            documents.add(document);
+            docIds.put(document.product.getId(), docId);
+            Set<String> grams = grams(document.description, grams(document.name, new HashSet<>()));
+            grams.forEach(gram -> postings.computeIfAbsent(gram, key -> new IntList()).add(docId));
+            if (document.cents != null) {
+                prices.computeIfAbsent(document.cents, key -> new LinkedHashSet<>()).add(docId);
+            }
+        }
+
+        void remove(UUID id) {
+            Integer docId = docIds.remove(id);
+            if (docId == null) {
+                return;
+            }
+            Document document = documents.set(docId, null);
+            Long cents = document.cents;
+            if (cents != null) {
+                Set<Integer> samePrice = prices.get(cents);
+                samePrice.remove(docId);
+                if (samePrice.isEmpty()) {
+                    prices.remove(cents);
+                }
+            }
+            if (++removed > COMPACTION_THRESHOLD && removed > documents.size() / 2) {
+                compact();
+            }
+        }
+
+        /**
+         * Posting lists only ever grow, so once most documents are gone they are rebuilt from the live ones.
+         */
+        private void compact() {
+            List<Document> live = documents.stream().filter(Objects::nonNull).collect(Collectors.toList());
+            documents.clear();
+            docIds.clear();
+            postings.clear();
+            prices.clear();
+            removed = 0;
+            live.forEach(this::add);
+        }
+
+        List<Product> search(String q, BigDecimal minPrice, BigDecimal maxPrice) {
+            String query = normalize(q);
+            long min = minPrice == null ? Long.MIN_VALUE : cents(minPrice, RoundingMode.CEILING);
+            long max = maxPrice == null ? Long.MAX_VALUE : cents(maxPrice, RoundingMode.FLOOR);
+            if (min > max) {
+                return List.of();
+            }
+
+            if (query.isEmpty()) {
+                return prices.subMap(min, true, max, true).values().stream()
+                        .flatMap(Set::stream)
+                        .map(docId -> documents.get(docId).product)
+                        .collect(Collectors.toList());
+            }
+
+            List<Match> matches = new ArrayList<>();
+            forEachCandidate(query, docId -> {
+                Document document = documents.get(docId);
+                if (document == null) {
+                    return;
+                }
+                Long cents = document.cents;
+                if (cents == null || cents < min || cents > max) {
+                    return;
+                }
+                int score = document.score(query);
+                if (score > 0) {
+                    matches.add(new Match(document, score));
+                }
+            });
+            matches.sort(Comparator.comparingInt((Match match) -> match.score).reversed()
+                    .thenComparing(match -> match.document.name));
+            return matches.stream().map(match -> match.document.product).collect(Collectors.toList());
+        }
+
+        private void forEachCandidate(String query, IntConsumer consumer) {
+            if (query.length() < GRAM) {
+                for (int docId = 0; docId < documents.size(); docId++) {
+                    consumer.accept(docId);
+                }
+                return;
+            }
+            List<IntList> lists = new ArrayList<>();
+            for (String gram : grams(query, new HashSet<>())) {
+                IntList list = postings.get(gram);
+                if (list == null) {
+                    return;
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            IntList smallest = lists.get(0);
+            for (int i = 0; i < smallest.size; i++) {
+                int docId = smallest.values[i];
+                boolean inAll = true;
+                for (int j = 1; j < lists.size() && inAll; j++) {
+                    inAll = lists.get(j).contains(docId);
+                }
+                if (inAll) {
+                    consumer.accept(docId);
+                }
+            }
+        }
+    }
+
+    private static final class Document {
+
+        private final Product product;
+        private final String name;
+        private final String description;
+        private final Long cents;
+
+        Document(Product product) {
+            this.product = product;
+            this.name = normalize(product.getName());
+            this.description = normalize(product.getDescription());
+            this.cents = product.getPrice() == null ? null : cents(product.getPrice(), RoundingMode.HALF_UP);
+        }
+
+        int score(String query) {
+            int nameAt = name.indexOf(query);
+            int descriptionAt = description.indexOf(query);
+            int score = 0;
+            if (nameAt >= 0) {
+                score += name.equals(query) ? 100 : nameAt == 0 ? 50 : 20;
+            }
+            if (descriptionAt >= 0) {
+                score += descriptionAt == 0 ? 10 : 5;
+            }
+            return score;
+        }
+    }
+
+    private static final class Match {
+
+        private final Document document;
+        private final int score;
+
+        Match(Document document, int score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Append-only list of doc ids. Ids are handed out in increasing order, so every list stays sorted.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+    }
+}
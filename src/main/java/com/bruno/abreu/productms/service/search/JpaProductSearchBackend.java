@@ -0,0 +1,35 @@
+package com.bruno.abreu.productms.service.search;
+
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductField;
+import com.bruno.abreu.productms.repository.ProductRepository;
+import com.bruno.abreu.productms.service.bulkhead.DatabaseCall;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Searches straight on the database with the {@code like} query. The default backend, and the fallback of
+ * {@link InMemoryProductSearchIndex} until its first build.
+ */
+public class JpaProductSearchBackend implements ProductSearchBackend {
+
+    private final ProductRepository productRepository;
+
+    public JpaProductSearchBackend(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    @DatabaseCall
+    public List<Product> search(String q, BigDecimal minPrice, BigDecimal maxPrice) {
+        return productRepository.findBySearchParameters(q, minPrice, maxPrice);
+    }
+
+    @Override
+    @DatabaseCall
+    public List<Product> search(String q, BigDecimal minPrice, BigDecimal maxPrice, Set<ProductField> fields) {
+        return productRepository.findBySearchParametersProjected(q, minPrice, maxPrice, fields);
+    }
+}
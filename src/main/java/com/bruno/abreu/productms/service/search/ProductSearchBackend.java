@@ -0,0 +1,38 @@
+package com.bruno.abreu.productms.service.search;
+
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductField;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Answers {@code /products/search} queries. Backends that keep their own copy of the catalog are told about
+ * every create, update and delete through {@link #index(Product)}, {@link #indexAll(Collection)} and
+ * {@link #remove(UUID)}.
+ */
+public interface ProductSearchBackend {
+
+    List<Product> search(String q, BigDecimal minPrice, BigDecimal maxPrice);
+
+    /**
+     * Same search when the caller only reads the given fields, plus id and version. Backends that query the
+     * database select just those columns; the others may return whole products.
+     */
+    default List<Product> search(String q, BigDecimal minPrice, BigDecimal maxPrice, Set<ProductField> fields) {
+        return search(q, minPrice, maxPrice);
+    }
+
+    default void index(Product product) {
+    }
+
+    default void indexAll(Collection<Product> products) {
+        products.forEach(this::index);
+    }
+
+    default void remove(UUID id) {
+    }
+}
@@ -0,0 +1,16 @@
+-- The product table as ddl-auto=update left it, with db/mysql/product-id-to-binary.sql and
+-- db/mysql/product-version.sql applied. Existing databases are baselined at this version instead of running it.
+
+CREATE TABLE product
+(
+    id          BINARY(16)   NOT NULL,
+    description VARCHAR(255) NULL,
+    name        VARCHAR(255) NULL,
+    price       DOUBLE       NOT NULL,
+    version     BIGINT       NOT NULL DEFAULT 0,
+    updated_at  DATETIME(6)  NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_product_price ON product (price);
+CREATE INDEX idx_product_name ON product (name);
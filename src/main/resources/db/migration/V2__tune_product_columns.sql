@@ -0,0 +1,8 @@
+-- utf8mb4 so names and descriptions accept any unicode character, explicit NOT NULL on the validated columns
+-- and room for longer descriptions than the VARCHAR(255) Hibernate picks by default. Rewrites the table once.
+
+ALTER TABLE product
+    CONVERT TO CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci,
+    MODIFY COLUMN name VARCHAR(255) NOT NULL,
+    MODIFY COLUMN description VARCHAR(2000) NOT NULL,
+    ENGINE = InnoDB;
@@ -0,0 +1,5 @@
+-- Prices as exact DECIMAL(12,2) instead of DOUBLE, so range filters compare cents exactly and values round-trip
+-- without float error. Existing values are rounded to the cent.
+
+ALTER TABLE product
+    MODIFY COLUMN price DECIMAL(12, 2) NOT NULL;
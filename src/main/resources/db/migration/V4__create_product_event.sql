@@ -0,0 +1,27 @@
+-- Transactional outbox of product changes. Rows are inserted in the transaction of the change; the relay
+-- gives them a gap free event_offset under the product_event_cursor row lock when it publishes them, which
+-- is also the position GET /products/changes pages by.
+
+CREATE TABLE product_event
+(
+    id           BIGINT      NOT NULL AUTO_INCREMENT,
+    event_offset BIGINT      NULL,
+    type         VARCHAR(16) NOT NULL,
+    product_id   BINARY(16)  NOT NULL,
+    version      BIGINT      NULL,
+    occurred_at  DATETIME(6) NOT NULL,
+    payload      JSON        NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_product_event_offset (event_offset)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_0900_ai_ci;
+
+CREATE TABLE product_event_cursor
+(
+    id          INT    NOT NULL,
+    last_offset BIGINT NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+INSERT INTO product_event_cursor (id, last_offset) VALUES (1, 0);
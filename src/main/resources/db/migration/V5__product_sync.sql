@@ -0,0 +1,23 @@
+-- Creation time, a NOT NULL updated_at indexed together with id for the keyset of
+-- GET /products?modifiedSince, and tombstones so that endpoint can report deletions.
+
+UPDATE product SET updated_at = UTC_TIMESTAMP(6) WHERE updated_at IS NULL;
+
+ALTER TABLE product
+    ADD COLUMN created_at DATETIME(6) NULL AFTER version,
+    MODIFY COLUMN updated_at DATETIME(6) NOT NULL,
+    ADD INDEX idx_product_updated_at (updated_at, id);
+
+-- The real creation time of existing rows is unknown, their last update is the closest bound.
+UPDATE product SET created_at = updated_at;
+
+ALTER TABLE product
+    MODIFY COLUMN created_at DATETIME(6) NOT NULL;
+
+CREATE TABLE product_tombstone
+(
+    id         BINARY(16)  NOT NULL,
+    deleted_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_product_tombstone_deleted_at (deleted_at, id)
+) ENGINE = InnoDB;
@@ -0,0 +1,5 @@
+-- Soft deletes keep the row with deleted_at set. They also set updated_at to the deletion time, so
+-- GET /products?modifiedSince finds deleted rows through idx_product_updated_at, without an index of its own.
+
+ALTER TABLE product
+    ADD COLUMN deleted_at DATETIME(6) NULL AFTER updated_at;
@@ -0,0 +1,5 @@
+-- Pruning looks up the last offset that occurred before the retention cutoff. With occurred_at and
+-- event_offset in one index that is a range scan of the index alone instead of a scan of the outbox.
+
+ALTER TABLE product_event
+    ADD INDEX idx_product_event_occurred_at (occurred_at, event_offset);
@@ -0,0 +1,19 @@
+-- Moves product.id from the 36 character uuid-char layout to BINARY(16), as mapped by Product since the
+-- switch to uuid-binary. Run once, with the application stopped, before deploying that version.
+--
+-- UNHEX keeps the byte order Hibernate uses for uuid-binary, so every existing id keeps the same string
+-- representation in the API. Compare SHOW TABLE STATUS LIKE 'product' (Data_length / Index_length)
+-- before and after to see the effect on the clustered index.
+
+ALTER TABLE product ADD COLUMN id_bin BINARY(16) NULL FIRST;
+
+UPDATE product SET id_bin = UNHEX(REPLACE(id, '-', ''));
+
+ALTER TABLE product
+    DROP PRIMARY KEY,
+    DROP COLUMN id,
+    CHANGE COLUMN id_bin id BINARY(16) NOT NULL FIRST,
+    ADD PRIMARY KEY (id);
+
+-- Rebuilds the table so the clustered index is written in key order.
+OPTIMIZE TABLE product;
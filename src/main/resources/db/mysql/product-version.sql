@@ -0,0 +1,9 @@
+-- Adds the optimistic locking version and the last modification time behind the ETag and Last-Modified
+-- headers. Run once, with the application stopped, before deploying that version: ddl-auto would add the
+-- columns as well, but leave version null on the existing rows.
+
+ALTER TABLE product
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at DATETIME(6) NULL;
+
+UPDATE product SET updated_at = UTC_TIMESTAMP(6);
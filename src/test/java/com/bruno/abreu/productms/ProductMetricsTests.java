@@ -0,0 +1,43 @@
+package com.bruno.abreu.productms;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "product.search.backend=jpa",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "management.endpoints.web.exposure.include=prometheus",
+        "management.metrics.distribution.percentiles-histogram.http.server.requests=true",
+        "management.metrics.distribution.percentiles-histogram.spring.data.repository.invocations=true"})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class ProductMetricsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void prometheusEndpointShouldExposeEndpointServiceAndQueryTimings() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/products/search").param("q", "Product"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(allOf(
+                        containsString("http_server_requests_seconds_bucket{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/products/search\""),
+                        containsString("product_service_seconds_bucket{class=\"com.bruno.abreu.productms.service.ProductService\",exception=\"none\",method=\"findBySearchParameters\""),
+                        containsString("spring_data_repository_invocations_seconds_bucket{exception=\"None\",method=\"findBySearchParameters\",repository=\"ProductRepository\""),
+                        containsString("hibernate_statements_total"),
+                        containsString("hikaricp_connections_active"))));
+    }
+}
@@ -0,0 +1,142 @@
+package com.bruno.abreu.productms.controller;
+
+import com.bruno.abreu.productms.config.ExportProperties;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.repository.ProductExportRepository;
+import com.bruno.abreu.productms.service.bulkhead.DatabaseBulkhead;
+import com.bruno.abreu.productms.service.exporting.ProductExporter;
+import com.bruno.abreu.productms.service.replica.ReplicaRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ExportController.class)
+@Import({ProductExporter.class, ExportControllerTest.Pages.class})
+class ExportControllerTest {
+
+    private static final UUID FIRST_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID SECOND_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @MockBean
+    private ProductExportRepository productExportRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() {
+        List<Product> products = List.of(
+                Product.builder().id(FIRST_ID).name("Product 1").description("Description 1")
+                        .price(new BigDecimal("1.10")).build(),
+                Product.builder().id(SECOND_ID).name("Product, \"two\"").description("Line 1\nLine 2")
+                        .price(new BigDecimal("20.00")).build());
+        when(productExportRepository.findPage(isNull(), eq(1))).thenReturn(products.subList(0, 1));
+        when(productExportRepository.findPage(eq(FIRST_ID), eq(1))).thenReturn(products.subList(1, 2));
+        when(productExportRepository.findPage(eq(SECOND_ID), eq(1))).thenReturn(List.of());
+    }
+
+    @Test
+    void exportShouldWriteOneJsonDocumentPerLineByDefault() throws Exception {
+        MvcResult result = mockMvc.perform(get("/products/export"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson;charset=UTF-8"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"products.ndjson\""))
+                .andReturn();
+
+        assertEquals("{\"id\":\"" + FIRST_ID + "\",\"name\":\"Product 1\",\"description\":\"Description 1\"," +
+                        "\"price\":1.10}\n" +
+                        "{\"id\":\"" + SECOND_ID + "\",\"name\":\"Product, \\\"two\\\"\"," +
+                        "\"description\":\"Line 1\\nLine 2\",\"price\":20.00}\n",
+                result.getResponse().getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportAsCsvShouldQuoteOnlyFieldsThatNeedIt() throws Exception {
+        MvcResult result = mockMvc.perform(get("/products/export").param("format", "CSV"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv;charset=UTF-8"))
+                .andReturn();
+
+        assertEquals("id,name,description,price\n" +
+                        FIRST_ID + ",Product 1,Description 1,1.10\n" +
+                        SECOND_ID + ",\"Product, \"\"two\"\"\",\"Line 1\nLine 2\",20.00\n",
+                result.getResponse().getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportShouldBeGzippedWhenTheClientAcceptsIt() throws Exception {
+        MvcResult result = mockMvc.perform(get("/products/export")
+                        .param("format", "CSV")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn();
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertEquals(3, csv.lines().filter(line -> !line.startsWith("Line 2")).count());
+    }
+
+    @Test
+    void exportShouldNotBeGzippedWhenTheClientRefusesIt() throws Exception {
+        mockMvc.perform(get("/products/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void exportWithUnknownFormatShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/products/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * One product per page, so the export has to follow the keyset.
+     */
+    static class Pages {
+
+        @Bean
+        ExportProperties exportProperties() {
+            ExportProperties properties = new ExportProperties();
+            properties.setPageSize(1);
+            return properties;
+        }
+
+        @Bean
+        DatabaseBulkhead databaseBulkhead() {
+            return new DatabaseBulkhead(1, Duration.ofSeconds(1), new SimpleMeterRegistry());
+        }
+
+        @Bean
+        ReplicaRouting replicaRouting() {
+            return new ReplicaRouting(() -> Duration.ZERO);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.bruno.abreu.productms.controller;
+
+import com.bruno.abreu.productms.config.ImportProperties;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.service.ProductService;
+import com.bruno.abreu.productms.service.importing.ImportJobs;
+import com.bruno.abreu.productms.service.importing.ProductImporter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = ImportController.class,
+        properties = {"product.import.chunk-size=2", "product.import.max-size=1KB"})
+@EnableConfigurationProperties(ImportProperties.class)
+@Import({ProductImporter.class, ImportJobs.class, ImportControllerTest.QueuedTasks.class})
+class ImportControllerTest {
+
+    @MockBean
+    private ProductService productService;
+
+    @Autowired
+    private QueuedTasks tasks;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void importCsvShouldCreateValidRowsInChunksAndRejectInvalidOnes() throws Exception {
+        List<Product> created = new ArrayList<>();
+        when(productService.createAll(anyList())).thenAnswer(invocation -> {
+            created.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        String csv = "Price,id,Name,Description\r\n" +
+                "1.50,,Plain,Simple description\r\n" +
+                "2.00,,\"Comma, name\",\"Says \"\"hi\"\"\nacross lines\"\r\n" +
+                "abc,,Bad price,Description\r\n" +
+                "\r\n" +
+                "3.999,,Too precise,Description\r\n" +
+                "4,,Last,Description\r\n";
+
+        MvcResult result = mockMvc.perform(post("/products/import").contentType("text/csv").content(csv))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("RUNNING"))
+                .andReturn();
+        String id = objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+        assertEquals("http://localhost/imports/" + id, result.getResponse().getHeader(HttpHeaders.LOCATION));
+        verifyNoInteractions(productService);
+
+        tasks.runAll();
+
+        mockMvc.perform(get("/imports/{jobId}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.format").value("CSV"))
+                .andExpect(jsonPath("$.rows_read").value(5))
+                .andExpect(jsonPath("$.rows_imported").value(3))
+                .andExpect(jsonPath("$.rows_rejected").value(2))
+                .andExpect(jsonPath("$.rejects[0].line").value(5))
+                .andExpect(jsonPath("$.rejects[0].message").value("[Price must be a number]"))
+                .andExpect(jsonPath("$.rejects[1].line").value(7))
+                .andExpect(jsonPath("$.rejects[1].message")
+                        .value("[Price must have at most 10 integer digits and 2 decimal places]"));
+        verify(productService, times(2)).createAll(anyList());
+        assertEquals(List.of("Plain", "Comma, name", "Last"),
+                created.stream().map(Product::getName).collect(Collectors.toList()));
+        assertEquals("Says \"hi\"\nacross lines", created.get(1).getDescription());
+        assertEquals(new BigDecimal("1.50"), created.get(0).getPrice());
+    }
+
+    @Test
+    void importNdjsonShouldRejectUnreadableAndInvalidLines() throws Exception {
+        when(productService.createAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        String ndjson = "{\"name\":\"First\",\"description\":\"Description\",\"price\":1.25}\n" +
+                "{\"name\":\"Broken\",\n" +
+                "\n" +
+                "{\"name\":\"\",\"description\":\"Description\",\"price\":1}\n" +
+                "{\"name\":\"Second\",\"description\":\"Description\",\"price\":2}\n";
+
+        MvcResult result = mockMvc.perform(post("/products/import")
+                        .contentType(ProductController.APPLICATION_NDJSON_VALUE)
+                        .content(ndjson))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        tasks.runAll();
+
+        mockMvc.perform(get(result.getResponse().getHeader(HttpHeaders.LOCATION)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.format").value("NDJSON"))
+                .andExpect(jsonPath("$.rows_read").value(4))
+                .andExpect(jsonPath("$.rows_imported").value(2))
+                .andExpect(jsonPath("$.rejects[0].line").value(2))
+                .andExpect(jsonPath("$.rejects[1].line").value(4))
+                .andExpect(jsonPath("$.rejects[1].message").value("[Name must not be blank]"));
+
+        ArgumentCaptor<List<Product>> chunk = ArgumentCaptor.forClass(List.class);
+        verify(productService).createAll(chunk.capture());
+        assertEquals(2, chunk.getValue().size());
+    }
+
+    @Test
+    void importWithoutTheRequiredColumnsShouldFailTheJob() throws Exception {
+        mockMvc.perform(post("/products/import").contentType("text/csv").content("name,price\nProduct,1\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status_code").value(400))
+                .andExpect(jsonPath("$.message")
+                        .value("CSV header must name the name, description and price columns"));
+
+        MvcResult result = mockMvc.perform(get("/imports")).andExpect(status().isOk()).andReturn();
+        JsonNode latest = objectMapper.readTree(result.getResponse().getContentAsString()).get(0);
+        assertEquals("FAILED", latest.get("status").asText());
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void importOverTheMaximumSizeShouldReturnPayloadTooLarge() throws Exception {
+        String rows = "Product,Description,1\n".repeat(50);
+
+        mockMvc.perform(post("/products/import").contentType("text/csv").content("name,description,price\n" + rows))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.status_code").value(413))
+                .andExpect(jsonPath("$.message").value("Import body is larger than 1024 bytes"));
+
+        assertEquals(0, tasks.queue.size());
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void failureAfterTheResponseShouldFailTheJob() throws Exception {
+        when(productService.createAll(anyList())).thenThrow(new IllegalStateException("Database is down"));
+
+        MvcResult result = mockMvc.perform(post("/products/import")
+                        .contentType("text/csv")
+                        .content("name,description,price\nProduct,Description,1\n"))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        tasks.runAll();
+
+        mockMvc.perform(get(result.getResponse().getHeader(HttpHeaders.LOCATION)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.error").value("Import failed after 0 rows"));
+    }
+
+    @Test
+    void unknownImportShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/imports/{jobId}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Holds the imports submitted to the task executor until the test runs them. A plain imported class rather
+     * than a @TestConfiguration, which the benchmarks' component scan of the test classes would pick up.
+     */
+    static class QueuedTasks {
+
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+        @Bean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+        TaskExecutor applicationTaskExecutor() {
+            return queue::add;
+        }
+
+        void runAll() {
+            for (Runnable task = queue.poll(); task != null; task = queue.poll()) {
+                task.run();
+            }
+        }
+    }
+}
@@ -1,34 +1,61 @@
 package com.bruno.abreu.productms.controller;
 
+import com.bruno.abreu.productms.config.BatchProperties;
+import com.bruno.abreu.productms.config.HttpCacheProperties;
+import com.bruno.abreu.productms.config.PaginationProperties;
+import com.bruno.abreu.productms.exception.ChangesExpired;
+import com.bruno.abreu.productms.exception.DatabaseBusy;
 import com.bruno.abreu.productms.exception.ProductNotFound;
 import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductEvent;
+import com.bruno.abreu.productms.model.ProductField;
+import com.bruno.abreu.productms.model.ProductLookup;
+import com.bruno.abreu.productms.model.ProductModification;
+import com.bruno.abreu.productms.model.ProductPatch;
+import com.bruno.abreu.productms.model.ProductTombstone;
+import com.bruno.abreu.productms.model.ProductVersion;
 import com.bruno.abreu.productms.service.ProductService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.MultiValueMapAdapter;
 
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.*;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest
+@WebMvcTest(ProductController.class)
+@EnableConfigurationProperties({PaginationProperties.class, BatchProperties.class, HttpCacheProperties.class})
 class ProductControllerTest {
 
     @MockBean
@@ -51,7 +78,7 @@ class ProductControllerTest {
                 .id(UUID.randomUUID())
                 .name("Product 1")
                 .description("Description 1")
-                .price(1.0)
+                .price(new BigDecimal("1.0"))
                 .build();
         products = List.of(Product.builder().build(),
                 Product.builder().build(),
@@ -63,12 +90,12 @@ class ProductControllerTest {
                 Product.builder()
                         .name("Product 1")
                         .description("Description 1")
-                        .price(1.1)
+                        .price(new BigDecimal("1.1"))
                         .build(),
                 Product.builder()
                         .name("Product 2")
                         .description("Description 2")
-                        .price(2.2)
+                        .price(new BigDecimal("2.2"))
                         .build());
     }
 
@@ -131,10 +158,45 @@ class ProductControllerTest {
                 .andExpect(MockMvcResultMatchers.content().json(responseBody));
     }
 
+    @Test
+    void saveProductWithPriceBeyondCentsShouldReturnAnSpecificResponseOnResponseBody() throws Exception {
+        String content = "{\"name\":\"Name\",\"description\":\"Description\",\"price\":1.005}";
+
+        String responseBody = "{\"status_code\":400,\"message\":\"[Price must have at most 10 integer digits and 2 decimal places]\"}";
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .post("/products")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.content().json(responseBody));
+    }
+
+    @Test
+    void saveProductWithTooLongDescriptionShouldReturnAnSpecificResponseOnResponseBody() throws Exception {
+        Product product = Product.builder()
+                .name("Name")
+                .description("d".repeat(2001))
+                .price(new BigDecimal("1.0"))
+                .build();
+        String content = objectMapper.writeValueAsString(product);
+
+        String responseBody = "{\"status_code\":400,\"message\":\"[Description must have at most 2000 characters]\"}";
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .post("/products")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.content().json(responseBody));
+    }
+
     @Test
     void saveProductWithNegativePriceShouldReturnAnSpecificResponseOnResponseBody() throws Exception {
         Product productIncomplete = Product.builder()
-                .price(-1.0)
+                .price(new BigDecimal("-1.0"))
                 .build();
         String content = objectMapper.writeValueAsString(productIncomplete);
 
@@ -148,6 +210,109 @@ class ProductControllerTest {
                 .andExpect(MockMvcResultMatchers.content().json(responseBody));
     }
 
+    @Test
+    void saveProductsInBatchShouldReturnStatusCreated() throws Exception {
+        String content = objectMapper.writeValueAsString(compatibleProducts);
+
+        when(productService.createAll(compatibleProducts)).thenReturn(compatibleProducts);
+
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .post("/products/batch")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.content().json(content));
+    }
+
+    @Test
+    void saveProductsInBatchWithInvalidItemsShouldReportEachItem() throws Exception {
+        List<Product> batch = List.of(compatibleProducts.get(0), Product.builder().build(), Product.builder()
+                .name("Product 3")
+                .description("Description 3")
+                .price(new BigDecimal("-1.0"))
+                .build());
+        String content = objectMapper.writeValueAsString(batch);
+
+        String responseBody = "{\"status_code\":400,\"message\":\"Batch contains invalid items\",\"errors\":[" +
+                "{\"index\":1,\"message\":\"[Description must not be blank, Name must not be blank, Price must not be null]\"}," +
+                "{\"index\":2,\"message\":\"[Price must be greater than 0]\"}]}";
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .post("/products/batch")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.content().json(responseBody, true));
+        verify(productService, never()).createAll(any());
+    }
+
+    @Test
+    void saveProductsInBatchAboveMaximumSizeShouldReturnBadRequest() throws Exception {
+        List<Product> batch = Collections.nCopies(1001, compatibleProducts.get(0));
+        String content = objectMapper.writeValueAsString(batch);
+
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .post("/products/batch")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Batch must contain between 1 and 1000 items"));
+    }
+
+    @Test
+    void updateProductsInBatchShouldReturnStatusOk() throws Exception {
+        List<Product> batch = List.of(product);
+        String content = objectMapper.writeValueAsString(batch);
+
+        when(productService.updateAll(batch)).thenReturn(batch);
+
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .put("/products/batch")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json(content));
+    }
+
+    @Test
+    void updateProductsInBatchWithoutIdShouldReturnBadRequest() throws Exception {
+        String content = objectMapper.writeValueAsString(List.of(product, compatibleProducts.get(0)));
+
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .put("/products/batch")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors", hasSize(1)))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].message").value("[Id must not be null]"));
+    }
+
+    @Test
+    void updateProductsInBatchNotSavedYetShouldReturnNotFound() throws Exception {
+        List<Product> batch = List.of(product);
+        String content = objectMapper.writeValueAsString(batch);
+
+        when(productService.updateAll(batch)).thenThrow(ProductNotFound.class);
+
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .put("/products/batch")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void updateProductShouldReturnStatusOk() throws Exception {
         String content = objectMapper.writeValueAsString(product);
@@ -210,7 +375,7 @@ class ProductControllerTest {
     @Test
     void updateProductWithNegativePriceShouldReturnAnSpecificResponseOnResponseBody() throws Exception {
         Product productIncomplete = Product.builder()
-                .price(-1.0)
+                .price(new BigDecimal("-1.0"))
                 .build();
         String content = objectMapper.writeValueAsString(productIncomplete);
 
@@ -238,6 +403,235 @@ class ProductControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void findProductByIdWhenDatabaseIsBusyShouldReturnServiceUnavailable() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(productService.findById(id)).thenThrow(new DatabaseBusy());
+        mockMvc
+                .perform(MockMvcRequestBuilders.get("/products/{id}", id))
+                .andDo(print())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(jsonPath("$.status_code").value(503));
+    }
+
+    @Test
+    void findProductByIdShouldReturnValidatorsAndCacheControl() throws Exception {
+        Product versioned = product.toBuilder().version(3L).updatedAt(Instant.parse("2021-03-01T10:15:30Z")).build();
+        when(productService.findById(versioned.getId())).thenReturn(versioned);
+        mockMvc
+                .perform(MockMvcRequestBuilders.get("/products/{id}", versioned.getId()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-json\""))
+                .andExpect(header().string(HttpHeaders.LAST_MODIFIED, "Mon, 01 Mar 2021 10:15:30 GMT"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    void findProductByIdShouldWritePriceAsAJsonNumber() throws Exception {
+        Product priced = product.toBuilder().price(new BigDecimal("59.90")).build();
+        when(productService.findById(priced.getId())).thenReturn(priced);
+        mockMvc
+                .perform(MockMvcRequestBuilders.get("/products/{id}", priced.getId()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(containsString("\"price\":59.90")));
+    }
+
+    @Test
+    void findProductByIdWithMatchingETagShouldReturnNotModifiedWithoutLoadingIt() throws Exception {
+        Product versioned = product.toBuilder().version(3L).build();
+        when(productService.findVersionById(versioned.getId())).thenReturn(ProductVersion.of(versioned));
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products/{id}", versioned.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3-json\""))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-json\""))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        verify(productService, never()).findById(any());
+    }
+
+    @Test
+    void findProductByIdWithStaleETagShouldReturnOk() throws Exception {
+        Product versioned = product.toBuilder().version(4L).build();
+        when(productService.findVersionById(versioned.getId())).thenReturn(ProductVersion.of(versioned));
+        when(productService.findById(versioned.getId())).thenReturn(versioned);
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products/{id}", versioned.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3-json\""))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-json\""));
+    }
+
+    @Test
+    void findProductByIdAcceptingCborShouldReturnAnotherETag() throws Exception {
+        Product versioned = product.toBuilder().version(3L).build();
+        when(productService.findById(versioned.getId())).thenReturn(versioned);
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products/{id}", versioned.getId())
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-cbor\""))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)));
+    }
+
+    @Test
+    void findProductByIdAcceptingCborWithJsonETagShouldReturnOk() throws Exception {
+        Product versioned = product.toBuilder().version(3L).build();
+        when(productService.findVersionById(versioned.getId())).thenReturn(ProductVersion.of(versioned));
+        when(productService.findById(versioned.getId())).thenReturn(versioned);
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products/{id}", versioned.getId())
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3-json\""))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-cbor\""));
+    }
+
+    @Test
+    void findProductByIdNotModifiedSinceShouldReturnNotModified() throws Exception {
+        Product versioned = product.toBuilder().version(3L).updatedAt(Instant.parse("2021-03-01T10:15:30Z")).build();
+        when(productService.findVersionById(versioned.getId())).thenReturn(ProductVersion.of(versioned));
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products/{id}", versioned.getId())
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Mon, 01 Mar 2021 10:15:30 GMT"))
+                .andDo(print())
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void findAllProductsWithMatchingETagShouldReturnNotModified() throws Exception {
+        when(productService.findAll(null, 100)).thenReturn(compatibleProducts);
+        String etag = mockMvc
+                .perform(MockMvcRequestBuilders.get("/products"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+    }
+
+    @Test
+    void updateProductWithIfMatchShouldExpectThatVersion() throws Exception {
+        String content = objectMapper.writeValueAsString(product);
+        Product expected = product.toBuilder().version(3L).build();
+        when(productService.update(expected)).thenReturn(expected.toBuilder().version(4L).build());
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .put("/products/{id}", product.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"3-json\"")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-json\""));
+    }
+
+    @Test
+    void updateProductWithCborIfMatchShouldExpectThatVersion() throws Exception {
+        String content = objectMapper.writeValueAsString(product);
+        Product expected = product.toBuilder().version(3L).build();
+        when(productService.update(expected)).thenReturn(expected.toBuilder().version(4L).build());
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .put("/products/{id}", product.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"3-cbor\"")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void updateProductWithStaleIfMatchShouldReturnPreconditionFailed() throws Exception {
+        String content = objectMapper.writeValueAsString(product);
+        when(productService.update(any())).thenThrow(new ObjectOptimisticLockingFailureException(Product.class, product.getId()));
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .put("/products/{id}", product.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.status_code").value(412));
+    }
+
+    @Test
+    void updateProductWithForeignIfMatchShouldReturnPreconditionFailed() throws Exception {
+        String content = objectMapper.writeValueAsString(product);
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .put("/products/{id}", product.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"not-a-version\"")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isPreconditionFailed());
+        verify(productService, never()).update(any());
+    }
+
+    @Test
+    void patchProductWithIfMatchShouldPatchThatVersion() throws Exception {
+        ProductPatch patch = ProductPatch.builder().price(new BigDecimal("2.0")).build();
+        Product patched = product.toBuilder().price(new BigDecimal("2.0")).version(4L).build();
+        when(productService.patch(product.getId(), 3L, patch)).thenReturn(patched);
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .patch("/products/{id}", product.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .content("{\"price\":2.0}")
+                        .contentType("application/merge-patch+json"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-json\""))
+                .andExpect(jsonPath("$.name").value(product.getName()))
+                .andExpect(jsonPath("$.price").value(2.0));
+    }
+
+    @Test
+    void patchProductWithBlankNameShouldReturnBadRequest() throws Exception {
+        String responseBody = "{\"status_code\":400,\"message\":\"[Name must not be blank, Price must be greater than 0]\"}";
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .patch("/products/{id}", product.getId())
+                        .content("{\"name\":\" \",\"price\":-1.0}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.content().json(responseBody));
+        verify(productService, never()).patch(any(), any(), any());
+    }
+
+    @Test
+    void patchProductNotSavedYetShouldReturnNotFound() throws Exception {
+        when(productService.patch(eq(product.getId()), isNull(), any())).thenThrow(ProductNotFound.class);
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .patch("/products/{id}", product.getId())
+                        .content("{\"description\":\"Description 2\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void findProductByIdShouldReturnOk() throws Exception {
         UUID id = UUID.randomUUID();
@@ -277,7 +671,7 @@ class ProductControllerTest {
 
     @Test
     void findAllProductsShouldReturnOk() throws Exception {
-        when(productService.findAll()).thenReturn(products);
+        when(productService.findAll(null, 100)).thenReturn(products);
         mockMvc
                 .perform(MockMvcRequestBuilders
                         .get("/products")
@@ -290,7 +684,7 @@ class ProductControllerTest {
     void findAllProductsShouldReturnAllProductsOnResponseBody() throws Exception {
         String content = objectMapper.writeValueAsString(products);
 
-        when(productService.findAll()).thenReturn(products);
+        when(productService.findAll(null, 100)).thenReturn(products);
         String contentAsString = mockMvc
                 .perform(MockMvcRequestBuilders
                         .get("/products")
@@ -307,12 +701,48 @@ class ProductControllerTest {
         Assertions.assertEquals(products, productsReturned);
     }
 
+    @Test
+    void findAllProductsAcceptingCborShouldReturnCborOnResponseBody() throws Exception {
+        when(productService.findAll(null, 100)).thenReturn(products);
+        byte[] content = mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        List<Product> productsReturned = new CBORMapper().readValue(content, new TypeReference<>() {
+        });
+        Assertions.assertEquals(products, productsReturned);
+    }
+
+    @Test
+    void saveProductWithCborBodyShouldReturnProductOnResponseBody() throws Exception {
+        byte[] content = new CBORMapper().writeValueAsBytes(product);
+
+        when(productService.create(product)).thenReturn(product);
+
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .post("/products")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.content().json(objectMapper.writeValueAsString(product)));
+    }
+
     @Test
     void findAllProductsShouldReturnEmptyListOnResponseBody() throws Exception {
         List<Product> emptyList = List.of();
         String content = objectMapper.writeValueAsString(emptyList);
 
-        when(productService.findAll()).thenReturn(emptyList);
+        when(productService.findAll(null, 100)).thenReturn(emptyList);
         String contentAsString = mockMvc
                 .perform(MockMvcRequestBuilders
                         .get("/products")
@@ -329,6 +759,177 @@ class ProductControllerTest {
         Assertions.assertEquals(emptyList, productsReturned);
     }
 
+    @Test
+    void findAllProductsWithFullPageShouldReturnNextLink() throws Exception {
+        UUID after = UUID.randomUUID();
+        when(productService.findAll(after, 1)).thenReturn(List.of(product));
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products")
+                        .param("after", after.toString())
+                        .param("limit", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("after=" + product.getId())));
+    }
+
+    @Test
+    void findAllProductsWithLastPageShouldNotReturnNextLink() throws Exception {
+        when(productService.findAll(null, 10)).thenReturn(products);
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products")
+                        .param("limit", "10")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    void findAllProductsWithFieldsShouldReturnOnlyThoseFields() throws Exception {
+        Set<ProductField> fields = EnumSet.of(ProductField.ID, ProductField.NAME, ProductField.PRICE);
+        Product projected = Product.builder().id(product.getId()).name("Product 1").price(new BigDecimal("1.00"))
+                .version(2L).build();
+        when(productService.findAll(null, 1, fields)).thenReturn(List.of(projected));
+        MvcResult result = mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products?fields=id,Name,price")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(product.getId().toString()))
+                .andExpect(jsonPath("$[0].name").value("Product 1"))
+                .andExpect(jsonPath("$[0].price").value(1.00))
+                .andExpect(jsonPath("$[0].description").doesNotExist())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("fields=id,Name,price")))
+                .andReturn();
+
+        when(productService.findAll(null, 1)).thenReturn(List.of(projected));
+        String fullETag = mockMvc.perform(MockMvcRequestBuilders.get("/products").param("limit", "1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotEquals(fullETag, result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void findAllProductsWithUnknownFieldShouldReturnBadRequest() throws Exception {
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products")
+                        .param("fields", "id,stock"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status_code").value(400))
+                .andExpect(jsonPath("$.message")
+                        .value("Unknown field 'stock', the available fields are id, name, description, price"));
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void searchWithFieldsShouldReturnOnlyThoseFields() throws Exception {
+        Set<ProductField> fields = EnumSet.of(ProductField.NAME);
+        when(productService.findBySearchParameters("Product", null, null, fields)).thenReturn(compatibleProducts);
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products/search")
+                        .param("q", "Product")
+                        .param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(compatibleProducts.size())))
+                .andExpect(jsonPath("$[0].name").value(compatibleProducts.get(0).getName()))
+                .andExpect(jsonPath("$[0].price").doesNotExist())
+                .andExpect(jsonPath("$[0].id").doesNotExist());
+    }
+
+    @Test
+    void findModifiedShouldReturnProductsAndDeletionsWithNextLink() throws Exception {
+        Instant since = Instant.parse("2021-03-01T10:15:30Z");
+        UUID deletedId = UUID.randomUUID();
+        List<ProductModification> modifications = List.of(
+                ProductModification.of(product.toBuilder().updatedAt(since).build()),
+                ProductModification.of(new ProductTombstone(deletedId, since.plusSeconds(1))));
+        when(productService.findModified(since, null, 2)).thenReturn(modifications);
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products")
+                        .param("modifiedSince", "2021-03-01T10:15:30Z")
+                        .param("limit", "2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(product.getId().toString()))
+                .andExpect(jsonPath("$[0].name").value(product.getName()))
+                .andExpect(jsonPath("$[0].modified_at").value("2021-03-01T10:15:30Z"))
+                .andExpect(jsonPath("$[0].deleted").value(false))
+                .andExpect(jsonPath("$[1].id").value(deletedId.toString()))
+                .andExpect(jsonPath("$[1].deleted").value(true))
+                .andExpect(jsonPath("$[1].name").doesNotExist())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("after=" + deletedId)))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("modifiedSince=2021-03-01T10:15:31Z")));
+    }
+
+    @Test
+    void findChangesShouldReturnChangesWithNextLink() throws Exception {
+        ProductEvent change = ProductEvent.builder()
+                .id(10L)
+                .offset(7L)
+                .type(ProductEvent.Type.UPDATED)
+                .productId(product.getId())
+                .version(2L)
+                .occurredAt(Instant.parse("2021-03-01T10:15:30Z"))
+                .payload("{\"id\":\"" + product.getId() + "\",\"name\":\"Product 1\"}")
+                .build();
+        when(productService.findChanges(6L, 1)).thenReturn(List.of(change));
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products/changes")
+                        .param("since", "6")
+                        .param("limit", "1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].offset").value(7))
+                .andExpect(jsonPath("$[0].type").value("UPDATED"))
+                .andExpect(jsonPath("$[0].product_id").value(product.getId().toString()))
+                .andExpect(jsonPath("$[0].product.name").value("Product 1"))
+                .andExpect(jsonPath("$[0].id").doesNotExist())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("since=7")));
+    }
+
+    @Test
+    void findChangesWithExpiredOffsetShouldReturnGone() throws Exception {
+        when(productService.findChanges(1L, 100)).thenThrow(new ChangesExpired());
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products/changes")
+                        .param("since", "1"))
+                .andDo(print())
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.status_code").value(410));
+    }
+
+    @Test
+    void streamAllProductsShouldReturnOneJsonDocumentPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            compatibleProducts.forEach(consumer);
+            return null;
+        }).when(productService).streamAll(any());
+
+        MvcResult result = mockMvc
+                .perform(MockMvcRequestBuilders
+                        .get("/products")
+                        .accept(ProductController.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String expected = objectMapper.writeValueAsString(compatibleProducts.get(0)) + "\n" +
+                objectMapper.writeValueAsString(compatibleProducts.get(1)) + "\n";
+        mockMvc
+                .perform(asyncDispatch(result))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(expected));
+    }
+
     @Test
     void findProductsBySearchParametersShouldReturnOk() throws Exception {
         MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
@@ -371,8 +972,8 @@ class ProductControllerTest {
 
         when(productService.findBySearchParameters(
                 params.getFirst("q"),
-                Double.valueOf(Objects.requireNonNull(params.getFirst("min_price"))),
-                Double.valueOf(Objects.requireNonNull(params.getFirst("max_price"))))
+                new BigDecimal(Objects.requireNonNull(params.getFirst("min_price"))),
+                new BigDecimal(Objects.requireNonNull(params.getFirst("max_price"))))
         ).thenReturn(compatibleProducts);
 
         mockMvc
@@ -396,10 +997,79 @@ class ProductControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void deleteProductsInBatchShouldReturnOk() throws Exception {
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID());
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .delete("/products/batch")
+                        .content(objectMapper.writeValueAsString(ids))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk());
+        verify(productService).deleteAll(ids);
+    }
+
+    @Test
+    void deleteProductsInBatchNotSavedShouldReturnNotFound() throws Exception {
+        List<UUID> ids = List.of(UUID.randomUUID());
+        doThrow(ProductNotFound.class).when(productService).deleteAll(ids);
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .delete("/products/batch")
+                        .content(objectMapper.writeValueAsString(ids))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void lookupProductsShouldReturnFoundAndMissingProducts() throws Exception {
+        UUID missing = UUID.randomUUID();
+        List<UUID> ids = List.of(product.getId(), missing);
+        when(productService.findAllById(ids)).thenReturn(new ProductLookup(List.of(product), List.of(missing)));
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .post("/products/lookup")
+                        .content(objectMapper.writeValueAsString(ids))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products", hasSize(1)))
+                .andExpect(jsonPath("$.products[0].id").value(product.getId().toString()))
+                .andExpect(jsonPath("$.missing[0]").value(missing.toString()));
+    }
+
+    @Test
+    void lookupTooManyProductsShouldReturnBadRequest() throws Exception {
+        List<UUID> ids = Collections.nCopies(1001, UUID.randomUUID());
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .post("/products/lookup")
+                        .content(objectMapper.writeValueAsString(ids))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Batch must contain between 1 and 1000 items"));
+        verify(productService, never()).findAllById(any());
+    }
+
+    @Test
+    void lookupNullIdShouldReturnBadRequest() throws Exception {
+        mockMvc
+                .perform(MockMvcRequestBuilders
+                        .post("/products/lookup")
+                        .content("[\"" + UUID.randomUUID() + "\", null]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+        verify(productService, never()).findAllById(any());
+    }
+
     @Test
     void deleteProductByIdNotSavedShouldReturnNotFound() throws Exception {
         UUID id = UUID.randomUUID();
-        doThrow(EmptyResultDataAccessException.class).when(productService).delete(id);
+        doThrow(ProductNotFound.class).when(productService).delete(id);
         mockMvc
                 .perform(MockMvcRequestBuilders
                         .delete("/products/{id}", id)
@@ -0,0 +1,124 @@
+package com.bruno.abreu.productms.controller;
+
+import com.bruno.abreu.productms.config.PaginationProperties;
+import com.bruno.abreu.productms.exception.ProductNotFound;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.service.ReactiveProductService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveProductController.class)
+@ActiveProfiles("reactive")
+@EnableConfigurationProperties(PaginationProperties.class)
+class ReactiveProductControllerTest {
+
+    @MockBean
+    private ReactiveProductService productService;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private static Product product;
+
+    @BeforeAll
+    static void setup() {
+        product = Product.builder()
+                .id(UUID.randomUUID())
+                .name("Product 1")
+                .description("Description 1")
+                .price(new BigDecimal("1.0"))
+                .build();
+    }
+
+    @Test
+    void saveProductShouldReturnStatusCreated() {
+        when(productService.create(any())).thenReturn(Mono.just(product));
+
+        webTestClient.post().uri("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(product)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(product.getId().toString());
+    }
+
+    @Test
+    void saveInvalidProductShouldReturnBadRequest() {
+        webTestClient.post().uri("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Product.builder().build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status_code").isEqualTo(400)
+                .jsonPath("$.message").value(containsString("must not be blank"));
+    }
+
+    @Test
+    void findByNonExistentIdShouldReturnNotFound() {
+        when(productService.findById(any())).thenReturn(Mono.error(new ProductNotFound()));
+
+        webTestClient.get().uri("/products/{id}", UUID.randomUUID())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void findAllShouldLinkNextPageWhenPageIsFull() {
+        when(productService.findAll(null, 1)).thenReturn(Flux.just(product));
+
+        webTestClient.get().uri("/products?limit=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.LINK, containsString("after=" + product.getId()))
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    void streamAllShouldWriteOneProductPerLine() {
+        Product other = product.toBuilder().id(UUID.randomUUID()).build();
+        when(productService.streamAll()).thenReturn(Flux.just(product, other));
+
+        List<Product> body = webTestClient.get().uri("/products")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Product.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        Assertions.assertEquals(List.of(product, other), body);
+    }
+
+    @Test
+    void deleteNonExistentProductShouldReturnNotFound() {
+        when(productService.delete(any())).thenReturn(Mono.error(new ProductNotFound()));
+
+        webTestClient.delete().uri("/products/{id}", UUID.randomUUID())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
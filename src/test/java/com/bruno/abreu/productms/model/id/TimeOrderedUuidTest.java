@@ -0,0 +1,41 @@
+package com.bruno.abreu.productms.model.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedUuidTest {
+
+    @Test
+    void generatedUuidShouldBeVersion7WithRfcVariant() {
+        UUID uuid = TimeOrderedUuid.generate();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+    }
+
+    @Test
+    void generatedUuidShouldStartWithTimestamp() {
+        long epochMillis = 1_700_000_000_000L;
+        UUID uuid = TimeOrderedUuid.generate(epochMillis);
+
+        assertEquals(epochMillis, uuid.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void uuidsGeneratedLaterShouldSortAfterEarlierOnes() {
+        UUID earlier = TimeOrderedUuid.generate(1_700_000_000_000L);
+        UUID later = TimeOrderedUuid.generate(1_700_000_000_001L);
+
+        assertTrue(earlier.toString().compareTo(later.toString()) < 0);
+    }
+
+    @Test
+    void strategyShouldBeResolvedFromSetting() {
+        assertEquals(ProductIdStrategy.TIME_ORDERED, ProductIdStrategy.fromSetting("time-ordered"));
+        assertEquals(ProductIdStrategy.RANDOM, ProductIdStrategy.fromSetting("random"));
+        assertEquals(4, ProductIdStrategy.RANDOM.generate().version());
+    }
+}
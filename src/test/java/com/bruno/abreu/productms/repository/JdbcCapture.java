@@ -0,0 +1,74 @@
+package com.bruno.abreu.productms.repository;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records every statement prepared on the application DataSource, by Hibernate and JdbcTemplate alike, so
+ * tests can count the round trips a call makes. Unlike {@link SqlCapture} it sees what reaches the JDBC
+ * driver; tests register it with {@code @Import(JdbcCapture.class)}.
+ */
+public class JdbcCapture implements BeanPostProcessor {
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource) || !"dataSource".equals(beanName)) {
+            return bean;
+        }
+        return new DelegatingDataSource((DataSource) bean) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return capturing(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return capturing(super.getConnection(username, password));
+            }
+        };
+    }
+
+    private static Connection capturing(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(JdbcCapture.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (isPrepare(method)) {
+                        synchronized (STATEMENTS) {
+                            STATEMENTS.add((String) args[0]);
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static boolean isPrepare(Method method) {
+        return (method.getName().equals("prepareStatement") || method.getName().equals("prepareCall"))
+                && method.getParameterTypes()[0] == String.class;
+    }
+
+    public static void clear() {
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+    }
+
+    public static List<String> statements() {
+        synchronized (STATEMENTS) {
+            return List.copyOf(STATEMENTS);
+        }
+    }
+}
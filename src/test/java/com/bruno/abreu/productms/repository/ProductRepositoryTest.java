@@ -1,21 +1,40 @@
 package com.bruno.abreu.productms.repository;
 
+import com.bruno.abreu.productms.config.JpaAuditingConfiguration;
 import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductField;
+import com.bruno.abreu.productms.model.ProductPatch;
+import com.bruno.abreu.productms.model.ProductTombstone;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@DataJpaTest
+@DataJpaTest(properties = SqlCapture.PROPERTY)
+@Import({JpaAuditingConfiguration.class, ProductExportRepository.class})
 class ProductRepositoryTest {
 
     private static Product product;
@@ -23,12 +42,24 @@ class ProductRepositoryTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ProductExportRepository productExportRepository;
+
+    @Autowired
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeAll
     static void setup(){
         product = Product.builder()
                 .name("Product 1")
                 .description("Description 1")
-                .price(1.0)
+                .price(new BigDecimal("1.0"))
                 .build();
     }
 
@@ -38,6 +69,16 @@ class ProductRepositoryTest {
         assertTrue(productRepository.findById(newProduct.getId()).isPresent());
     }
 
+    @Test
+    void saveProductShouldGenerateTimeOrderedId(){
+        Product newProduct = productRepository.save(Product.builder()
+                .name("Product 6")
+                .description("Description 6")
+                .price(new BigDecimal("6.6"))
+                .build());
+        assertEquals(7, newProduct.getId().version());
+    }
+
     @Test
     void updateProductShouldReturnProductWithId(){
         product.setId(UUID.fromString("fe13fded-fa56-425b-bc35-ae70981dcfb8"));
@@ -47,6 +88,96 @@ class ProductRepositoryTest {
         assertTrue(productRepository.findById(newProduct.getId()).isPresent());
     }
 
+    @Test
+    void updateProductShouldIncrementVersion(){
+        Product saved = productRepository.save(Product.builder()
+                .name("Product 6")
+                .description("Description 6")
+                .price(new BigDecimal("6.6"))
+                .build());
+        flushAndClear();
+        assertEquals(0L, saved.getVersion());
+
+        Product updated = productRepository.save(saved.toBuilder().price(new BigDecimal("7.7")).build());
+        flushAndClear();
+        assertEquals(1L, updated.getVersion());
+        assertEquals(1L, productRepository.findVersionById(saved.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void updateProductWithStaleVersionShouldFail(){
+        Product saved = productRepository.save(Product.builder()
+                .name("Product 6")
+                .description("Description 6")
+                .price(new BigDecimal("6.6"))
+                .build());
+        flushAndClear();
+        productRepository.save(saved.toBuilder().price(new BigDecimal("7.7")).build());
+        flushAndClear();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> productRepository.save(saved.toBuilder().version(0L).price(new BigDecimal("8.8")).build()));
+    }
+
+    @Test
+    void updateProductShouldKeepCreationTime(){
+        Product saved = productRepository.save(Product.builder()
+                .name("Product 6")
+                .description("Description 6")
+                .price(new BigDecimal("6.6"))
+                .build());
+        flushAndClear();
+        Instant createdAt = productRepository.findById(saved.getId()).orElseThrow().getCreatedAt();
+        assertNotNull(createdAt);
+
+        productRepository.save(saved.toBuilder().createdAt(null).price(new BigDecimal("7.7")).build());
+        flushAndClear();
+
+        Product updated = productRepository.findById(saved.getId()).orElseThrow();
+        assertEquals(createdAt, updated.getCreatedAt());
+        assertFalse(updated.getUpdatedAt().isBefore(createdAt));
+    }
+
+    @Test
+    void findModifiedAfterShouldPageByUpdateTimeAndId(){
+        Instant since = Instant.parse("2021-03-01T10:00:00Z");
+        jdbcTemplate.update("update product set updated_at = ?", LocalDateTime.parse("2021-03-01T09:00:00"));
+        jdbcTemplate.update("update product set updated_at = ? where name in ('Product 2', 'Product 4')",
+                LocalDateTime.parse("2021-03-01T10:00:00"));
+        jdbcTemplate.update("update product set updated_at = ? where name = 'Product 1'",
+                LocalDateTime.parse("2021-03-01T11:00:00"));
+        Instant until = Instant.parse("2021-03-02T00:00:00Z");
+        UUID product2 = UUID.fromString("97d769a2-e303-4dbf-933a-cb6447a33aab");
+        UUID product4 = UUID.fromString("9152eb1e-bb4c-46b9-b1e7-18f4b0813f45");
+        UUID product1 = UUID.fromString("fe13fded-fa56-425b-bc35-ae70981dcfb8");
+
+        List<Product> firstPage = productRepository.findModifiedAfter(since, new UUID(0, 0), until, PageRequest.of(0, 2));
+        assertEquals(List.of(product4, product2), firstPage.stream().map(Product::getId).collect(Collectors.toList()));
+
+        List<Product> secondPage = productRepository.findModifiedAfter(since, product2, until, PageRequest.of(0, 2));
+        assertEquals(List.of(product1), secondPage.stream().map(Product::getId).collect(Collectors.toList()));
+
+        assertTrue(productRepository.findModifiedAfter(since, new UUID(0, 0), Instant.parse("2021-03-01T10:30:00Z"),
+                PageRequest.of(0, 10)).stream().noneMatch(product -> product.getId().equals(product1)));
+    }
+
+    @Test
+    void findModifiedAfterShouldUseTheUpdatedAtIndex(){
+        SqlCapture.clear();
+        productRepository.findModifiedAfter(Instant.EPOCH, new UUID(0, 0), Instant.now(), PageRequest.of(0, 10));
+        String sql = SqlCapture.single();
+
+        assertTrue(where(sql).contains(".updated_at>=?"));
+        LocalDateTime epoch = LocalDateTime.parse("1970-01-01T00:00:00");
+        assertIndexUsed(sql.replaceFirst("limit \\?", "limit 10"), "IDX_PRODUCT_UPDATED_AT",
+                epoch, LocalDateTime.now(), epoch, new byte[16]);
+    }
+
+    @Test
+    void findVersionByIdOfProductNotSavedYetShouldBeEmpty(){
+        assertTrue(productRepository.findVersionById(UUID.randomUUID()).isEmpty());
+    }
+
     @Test
     void findProductByIdShouldBeFound(){
         UUID id = UUID.fromString("fe13fded-fa56-425b-bc35-ae70981dcfb8");
@@ -60,9 +191,58 @@ class ProductRepositoryTest {
     }
 
     @Test
-    void findAllProductsShouldReturnAllProducts(){
-        assertFalse(productRepository.findAll().isEmpty());
-        assertEquals(5, productRepository.findAll().size());
+    void countProductsShouldCountAllProducts(){
+        assertEquals(5, productRepository.count());
+    }
+
+    @Test
+    void findFirstPageShouldReturnProductsOrderedById(){
+        List<Product> firstPage = productRepository.findAllByOrderById(PageRequest.of(0, 2));
+
+        assertEquals(2, firstPage.size());
+        assertEquals("568d791e-6c2e-44e3-925c-e6cee648df26", firstPage.get(0).getId().toString());
+        assertEquals("9152eb1e-bb4c-46b9-b1e7-18f4b0813f45", firstPage.get(1).getId().toString());
+    }
+
+    @Test
+    void findPageAfterCursorShouldReturnFollowingProducts(){
+        UUID after = UUID.fromString("9152eb1e-bb4c-46b9-b1e7-18f4b0813f45");
+        List<Product> nextPage = productRepository.findByIdGreaterThanOrderById(after, PageRequest.of(0, 2));
+
+        assertEquals(2, nextPage.size());
+        assertEquals("97d769a2-e303-4dbf-933a-cb6447a33aab", nextPage.get(0).getId().toString());
+        assertEquals("bb6d7120-2ab6-461e-85ac-90cbde57f35c", nextPage.get(1).getId().toString());
+    }
+
+    @Test
+    void findPageAfterLastProductShouldReturnEmptyList(){
+        UUID after = UUID.fromString("fe13fded-fa56-425b-bc35-ae70981dcfb8");
+        assertTrue(productRepository.findByIdGreaterThanOrderById(after, PageRequest.of(0, 2)).isEmpty());
+    }
+
+    @Test
+    @Transactional(readOnly = true)
+    void streamAllShouldReturnEveryProduct(){
+        try (Stream<Product> products = productRepository.streamAll()) {
+            assertEquals(5, products.count());
+        }
+    }
+
+    @Test
+    void exportShouldReadEveryProductInIdOrderByKeysetPages(){
+        List<Product> exported = new ArrayList<>(productExportRepository.findPage(null, 2));
+        assertEquals(2, exported.size());
+        exported.addAll(productExportRepository.findPage(exported.get(1).getId(), 2));
+        exported.addAll(productExportRepository.findPage(exported.get(3).getId(), 2));
+        assertTrue(productExportRepository.findPage(exported.get(4).getId(), 2).isEmpty());
+
+        assertEquals(5, exported.size());
+        List<UUID> ids = exported.stream().map(Product::getId).collect(Collectors.toList());
+        assertEquals(ids.stream().sorted((a, b) -> Arrays.compareUnsigned(UuidBytes.toBytes(a), UuidBytes.toBytes(b))).collect(Collectors.toList()), ids);
+        Product first = productRepository.findById(exported.get(0).getId()).orElseThrow();
+        assertEquals(first.getName(), exported.get(0).getName());
+        assertEquals(first.getDescription(), exported.get(0).getDescription());
+        assertEquals(0, first.getPrice().compareTo(exported.get(0).getPrice()));
     }
 
 //    @Test
@@ -81,8 +261,8 @@ class ProductRepositoryTest {
 
         List<Product> compatibleProducts = productRepository.findBySearchParameters(
                 params.getFirst("q"),
-                Double.valueOf(Objects.requireNonNull(params.getFirst("min_price"))),
-                Double.valueOf(Objects.requireNonNull(params.getFirst("max_price"))));
+                new BigDecimal(Objects.requireNonNull(params.getFirst("min_price"))),
+                new BigDecimal(Objects.requireNonNull(params.getFirst("max_price"))));
 
         assertFalse(compatibleProducts.isEmpty());
         assertEquals(2, compatibleProducts.size());
@@ -98,8 +278,8 @@ class ProductRepositoryTest {
 
         List<Product> compatibleProducts = productRepository.findBySearchParameters(
                 params.getFirst("q"),
-                Double.MIN_VALUE,
-                Double.valueOf(Objects.requireNonNull(params.getFirst("max_price"))));
+                null,
+                new BigDecimal(Objects.requireNonNull(params.getFirst("max_price"))));
 
         assertFalse(compatibleProducts.isEmpty());
         assertEquals(2, compatibleProducts.size());
@@ -113,13 +293,114 @@ class ProductRepositoryTest {
 
         List<Product> compatibleProducts = productRepository.findBySearchParameters(
                 params.getFirst("q"),
-                Double.valueOf(Objects.requireNonNull(params.getFirst("min_price"))),
-                Double.MAX_VALUE);
+                new BigDecimal(Objects.requireNonNull(params.getFirst("min_price"))),
+                null);
 
         assertFalse(compatibleProducts.isEmpty());
         assertEquals(5, compatibleProducts.size());
     }
 
+    @Test
+    void searchWithoutParametersShouldNotFilter(){
+        SqlCapture.clear();
+        assertEquals(5, productRepository.findBySearchParameters(null, null, null).size());
+
+        // Only the soft delete filter every query on the entity gets
+        String where = where(SqlCapture.single());
+        assertEquals(" where ( product0_.deleted_at is null)", where);
+    }
+
+    @Test
+    void searchByTextOnlyShouldNotFilterOnPrice(){
+        SqlCapture.clear();
+        assertEquals(5, productRepository.findBySearchParameters("Description", null, null).size());
+
+        String where = where(SqlCapture.single());
+        assertTrue(where.contains(".name like ?"));
+        assertTrue(where.contains(".description like ?"));
+        assertFalse(where.contains(".price"));
+    }
+
+    @Test
+    void searchByBlankTextShouldNotUseLike(){
+        SqlCapture.clear();
+        assertEquals(2, productRepository.findBySearchParameters(" ", new BigDecimal("1.0"), new BigDecimal("3.0")).size());
+
+        assertFalse(where(SqlCapture.single()).contains(" like "));
+    }
+
+    @Test
+    void findAllProjectedShouldSelectOnlyTheRequestedColumns(){
+        List<Product> all = productRepository.findAllByOrderById(PageRequest.of(0, 5));
+
+        SqlCapture.clear();
+        List<Product> page = productRepository.findAllProjected(EnumSet.of(ProductField.NAME, ProductField.PRICE),
+                all.get(1).getId(), 2);
+
+        String select = SqlCapture.single();
+        assertTrue(select.contains(".name"));
+        assertFalse(select.contains(".description"));
+        assertEquals(List.of(all.get(2).getId(), all.get(3).getId()),
+                page.stream().map(Product::getId).collect(Collectors.toList()));
+        assertEquals(all.get(2).getName(), page.get(0).getName());
+        assertEquals(all.get(2).getVersion(), page.get(0).getVersion());
+        assertEquals(0, all.get(2).getPrice().compareTo(page.get(0).getPrice()));
+        assertNull(page.get(0).getDescription());
+    }
+
+    @Test
+    void searchProjectedShouldFilterLikeTheFullSearch(){
+        SqlCapture.clear();
+        List<Product> found = productRepository.findBySearchParametersProjected("Description", null,
+                new BigDecimal("3.0"), EnumSet.of(ProductField.ID));
+
+        String sql = SqlCapture.single();
+        assertFalse(sql.substring(0, sql.indexOf(" from ")).contains(".name"));
+        assertEquals(2, found.size());
+        assertTrue(found.stream().allMatch(product -> product.getId() != null && product.getName() == null));
+    }
+
+    @Test
+    void searchByMinPriceOnlyShouldCompareTheBareColumn(){
+        SqlCapture.clear();
+        assertEquals(3, productRepository.findBySearchParameters(null, new BigDecimal("3.0"), null).size());
+
+        String sql = SqlCapture.single();
+        assertTrue(where(sql).contains(".price>=?"));
+        assertFalse(where(sql).contains(" like "));
+        assertIndexUsed(sql, "IDX_PRODUCT_PRICE", new BigDecimal("3.0"));
+    }
+
+    @Test
+    void searchByMaxPriceOnlyShouldCompareTheBareColumn(){
+        SqlCapture.clear();
+        assertEquals(2, productRepository.findBySearchParameters(null, null, new BigDecimal("3.0")).size());
+
+        String sql = SqlCapture.single();
+        assertTrue(where(sql).contains(".price<=?"));
+        assertFalse(where(sql).contains(" like "));
+        assertIndexUsed(sql, "IDX_PRODUCT_PRICE", new BigDecimal("3.0"));
+    }
+
+    @Test
+    void searchByPriceRangeShouldUseThePriceIndex(){
+        SqlCapture.clear();
+        assertEquals(2, productRepository.findBySearchParameters(null, new BigDecimal("2.0"), new BigDecimal("4.0")).size());
+
+        String sql = SqlCapture.single();
+        assertTrue(where(sql).contains(".price between ? and ?"));
+        assertIndexUsed(sql, "IDX_PRODUCT_PRICE", new BigDecimal("2.0"), new BigDecimal("4.0"));
+    }
+
+    @Test
+    @Sql("/create-product-to-be-deleted.sql")
+    void deleteProductsInBatchShouldReturnDeletedCount(){
+        UUID id = UUID.fromString("788d791e-6c2e-44e3-925c-e6cee648df26");
+        int deleted = productRepository.deleteAllByIdIn(List.of(id, UUID.randomUUID()));
+        assertEquals(1, deleted);
+        assertFalse(productRepository.findById(id).isPresent());
+    }
+
     @Test
     @Sql("/create-product-to-be-deleted.sql")
     void deleteProductByIdShouldWorkFine(){
@@ -129,4 +410,67 @@ class ProductRepositoryTest {
         assertFalse(productRepository.findById(id).isPresent());
     }
 
+    @Test
+    @Sql("/create-product-to-be-deleted.sql")
+    void softDeletedProductShouldBeLeftOutOfEveryQuery(){
+        UUID id = UUID.fromString("788d791e-6c2e-44e3-925c-e6cee648df26");
+        Product product = productRepository.findById(id).orElseThrow();
+        flushAndClear();
+
+        assertEquals(1, productRepository.softDeleteAllByIdIn(List.of(id, UUID.randomUUID()), Instant.now()));
+        flushAndClear();
+
+        assertFalse(productRepository.findById(id).isPresent());
+        assertTrue(productRepository.findVersionById(id).isEmpty());
+        assertTrue(productRepository.findAllById(List.of(id)).isEmpty());
+        assertEquals(5, productRepository.count());
+        assertTrue(productRepository.findBySearchParameters("Product 5", null, null).stream()
+                .noneMatch(found -> found.getId().equals(id)));
+        assertTrue(productExportRepository.findPage(null, 10).stream()
+                .noneMatch(exported -> exported.getId().equals(id)));
+        assertEquals(0, productRepository.update(id, product.getVersion() + 1,
+                ProductPatch.builder().name("Product 6").build(), Instant.now()));
+        assertEquals(0, productRepository.softDeleteAllByIdIn(List.of(id), Instant.now()));
+    }
+
+    @Test
+    @Sql("/create-product-to-be-deleted.sql")
+    void findDeletedAfterShouldMergeTombstonesAndSoftDeletedProductsByDeletionTimeAndId(){
+        UUID softDeleted = UUID.fromString("788d791e-6c2e-44e3-925c-e6cee648df26");
+        UUID hardDeleted = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID sameInstant = UUID.fromString("ffffffff-0000-0000-0000-000000000000");
+        Instant since = Instant.parse("2021-03-01T10:00:00Z");
+        productRepository.softDeleteAllByIdIn(List.of(softDeleted), since.plusSeconds(1));
+        productTombstoneRepository.saveAll(List.of(new ProductTombstone(hardDeleted, since.plusSeconds(1)),
+                new ProductTombstone(sameInstant, since.plusSeconds(1)),
+                new ProductTombstone(UUID.randomUUID(), since.minusSeconds(1))));
+        flushAndClear();
+        Instant until = since.plusSeconds(60);
+
+        List<ProductTombstone> firstPage = productTombstoneRepository.findDeletedAfter(since, new UUID(0, 0), until, 2);
+        assertEquals(List.of(hardDeleted, softDeleted),
+                firstPage.stream().map(ProductTombstone::getId).collect(Collectors.toList()));
+        assertEquals(since.plusSeconds(1), firstPage.get(1).getDeletedAt());
+
+        List<ProductTombstone> secondPage = productTombstoneRepository.findDeletedAfter(since.plusSeconds(1),
+                softDeleted, until, 2);
+        assertEquals(List.of(sameInstant),
+                secondPage.stream().map(ProductTombstone::getId).collect(Collectors.toList()));
+    }
+
+
+    private void flushAndClear(){
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static String where(String sql){
+        int where = sql.indexOf(" where ");
+        return where == -1 ? "" : sql.substring(where);
+    }
+
+    private void assertIndexUsed(String sql, String index, Object... parameters){
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class, parameters);
+        assertTrue(Objects.requireNonNull(plan).contains(index), plan);
+    }
 }
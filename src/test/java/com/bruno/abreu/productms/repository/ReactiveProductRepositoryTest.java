@@ -0,0 +1,107 @@
+package com.bruno.abreu.productms.repository;
+
+import com.bruno.abreu.productms.model.Product;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@DataR2dbcTest(properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-product-ms-database",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.main.web-application-type=none"})
+@ActiveProfiles("reactive")
+@Import(ReactiveProductRepository.class)
+class ReactiveProductRepositoryTest {
+
+    private static final UUID FIRST_ID = UUID.fromString("568d791e-6c2e-44e3-925c-e6cee648df26");
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private ReactiveProductRepository productRepository;
+
+    @BeforeEach
+    void setup() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .populate(connectionFactory)
+                .block();
+    }
+
+    @Test
+    void findByIdShouldMapBinaryId() {
+        StepVerifier.create(productRepository.findById(FIRST_ID))
+                .expectNextMatches(product -> product.getId().equals(FIRST_ID) && product.getName().equals("Product 5"))
+                .verifyComplete();
+    }
+
+    @Test
+    void findByIdShouldBeEmptyWhenProductDoesNotExist() {
+        StepVerifier.create(productRepository.findById(UUID.randomUUID()))
+                .verifyComplete();
+    }
+
+    @Test
+    void findAllShouldReturnKeysetPages() {
+        StepVerifier.create(productRepository.findAll(null, 2))
+                .expectNextMatches(product -> product.getId().equals(FIRST_ID))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(productRepository.findAll(FIRST_ID, 10))
+                .expectNextCount(4)
+                .verifyComplete();
+    }
+
+    @Test
+    void streamAllShouldHonourDemand() {
+        StepVerifier.create(productRepository.streamAll(), 2)
+                .expectNextCount(2)
+                .thenRequest(3)
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @Test
+    void findBySearchParametersShouldFilterByNameAndPrice() {
+        StepVerifier.create(productRepository.findBySearchParameters("Product", new BigDecimal("2.0"), new BigDecimal("4.0")))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void insertUpdateAndDeleteShouldAffectOneRow() {
+        Product product = Product.builder()
+                .id(UUID.randomUUID())
+                .name("Product 6")
+                .description("Description 6")
+                .price(new BigDecimal("6.6"))
+                .build();
+
+        StepVerifier.create(productRepository.insert(product))
+                .expectNext(product)
+                .verifyComplete();
+        StepVerifier.create(productRepository.update(product.toBuilder().price(new BigDecimal("7.7")).build()))
+                .expectNext(1)
+                .verifyComplete();
+        StepVerifier.create(productRepository.findById(product.getId()))
+                .expectNextMatches(updated -> updated.getPrice().equals(new BigDecimal("7.70")))
+                .verifyComplete();
+        StepVerifier.create(productRepository.deleteById(product.getId()))
+                .expectNext(1)
+                .verifyComplete();
+        StepVerifier.create(productRepository.deleteById(product.getId()))
+                .expectNext(0)
+                .verifyComplete();
+    }
+}
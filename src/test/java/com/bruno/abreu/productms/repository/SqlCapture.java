@@ -0,0 +1,50 @@
+package com.bruno.abreu.productms.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records every statement Hibernate prepares, so tests can assert on the SQL that reaches the database.
+ * Registered with {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}.
+ */
+public class SqlCapture implements StatementInspector {
+
+    public static final String PROPERTY =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                    "com.bruno.abreu.productms.repository.SqlCapture";
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+
+    public static void clear() {
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+    }
+
+    public static List<String> statements() {
+        synchronized (STATEMENTS) {
+            return List.copyOf(STATEMENTS);
+        }
+    }
+
+    /**
+     * The only statement captured since the last {@link #clear()}.
+     */
+    public static String single() {
+        List<String> statements = statements();
+        if (statements.size() != 1) {
+            throw new AssertionError("Expected one statement but got " + statements);
+        }
+        return statements.get(0);
+    }
+}
@@ -1,27 +1,59 @@
 package com.bruno.abreu.productms.service;
 
+import com.bruno.abreu.productms.exception.PreconditionFailed;
+import com.bruno.abreu.productms.exception.ProductNotFound;
 import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductEvent;
+import com.bruno.abreu.productms.model.ProductLookup;
+import com.bruno.abreu.productms.model.ProductModification;
+import com.bruno.abreu.productms.model.ProductPatch;
+import com.bruno.abreu.productms.model.ProductTombstone;
+import com.bruno.abreu.productms.model.ProductVersion;
 import com.bruno.abreu.productms.repository.ProductRepository;
+import com.bruno.abreu.productms.repository.ProductTombstoneRepository;
+import com.bruno.abreu.productms.service.bulkhead.DatabaseBulkhead;
+import com.bruno.abreu.productms.service.cache.ProductCache;
+import com.bruno.abreu.productms.service.outbox.ProductEvents;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
-@SpringBootTest
+@SpringBootTest(properties = "product.search.backend=jpa")
 class ProductServiceTest {
 
     private static Product product;
@@ -32,21 +64,36 @@ class ProductServiceTest {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private DatabaseBulkhead databaseBulkhead;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockBean
     private ProductRepository productRepository;
 
+    @MockBean
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    @MockBean
+    private ProductEvents productEvents;
+
     @BeforeAll
     static void setup(){
         product = Product.builder()
                 .name("Product 1")
                 .description("Description 1")
-                .price(1.0)
+                .price(new BigDecimal("1.0"))
                 .build();
         expectedNewProduct = Product.builder()
                 .id(UUID.randomUUID())
                 .name("Product 1")
                 .description("Description 1")
-                .price(1.0)
+                .price(new BigDecimal("1.0"))
                 .build();
         products = List.of(Product.builder().build(),
                 Product.builder().build(),
@@ -57,15 +104,20 @@ class ProductServiceTest {
                 Product.builder()
                         .name("Product 1")
                         .description("Description 1")
-                        .price(1.1)
+                        .price(new BigDecimal("1.1"))
                         .build(),
                 Product.builder()
                         .name("Product 2")
                         .description("Description 2")
-                        .price(2.2)
+                        .price(new BigDecimal("2.2"))
                         .build());
     }
 
+    @BeforeEach
+    void clearCache(){
+        productCache.evictAll();
+    }
+
     @Test
     void saveProductShouldReturnProduct(){
         when(productRepository.save(product)).thenReturn(expectedNewProduct);
@@ -75,12 +127,152 @@ class ProductServiceTest {
     }
 
     @Test
-    void updateProductShouldReturnProduct(){
-        when(productRepository.findById(product.getId())).thenReturn(Optional.of(product));
+    void saveProductShouldRecordACreatedEvent(){
         when(productRepository.save(product)).thenReturn(expectedNewProduct);
 
-        Product newProduct = productService.update(product);
-        assertEquals(expectedNewProduct, newProduct);
+        productService.create(product);
+        verify(productEvents).recordAll(ProductEvent.Type.CREATED, List.of(expectedNewProduct));
+    }
+
+    @Test
+    void saveProductsInBatchShouldReturnProducts(){
+        when(productRepository.saveAll(List.of(product))).thenReturn(List.of(expectedNewProduct));
+
+        List<Product> newProducts = productService.createAll(List.of(product));
+        assertEquals(List.of(expectedNewProduct), newProducts);
+    }
+
+    @Test
+    void updateProductsInBatchShouldReturnProducts(){
+        when(productRepository.findAllById(Set.of(expectedNewProduct.getId()))).thenReturn(List.of(expectedNewProduct));
+        when(productRepository.saveAll(List.of(expectedNewProduct))).thenReturn(List.of(expectedNewProduct));
+
+        List<Product> updatedProducts = productService.updateAll(List.of(expectedNewProduct));
+        assertEquals(List.of(expectedNewProduct), updatedProducts);
+    }
+
+    @Test
+    void updateProductsInBatchNotSavedYetShouldThrowProductNotFound(){
+        when(productRepository.findAllById(Set.of(expectedNewProduct.getId()))).thenReturn(List.of());
+
+        assertThrows(ProductNotFound.class, () -> productService.updateAll(List.of(expectedNewProduct)));
+        verify(productRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void deleteProductsInBatchNotSavedYetShouldThrowProductNotFound(){
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID());
+        when(productRepository.deleteAllByIdIn(ids)).thenReturn(1);
+
+        assertThrows(ProductNotFound.class, () -> productService.deleteAll(ids));
+    }
+
+    @Test
+    void updateProductShouldReturnProduct(){
+        Product stored = expectedNewProduct.toBuilder().version(2L).build();
+        when(productRepository.update(eq(stored.getId()), isNull(), any(), any())).thenReturn(1);
+        when(productRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+
+        Product newProduct = productService.update(expectedNewProduct);
+        assertEquals(2L, newProduct.getVersion());
+        assertEquals(expectedNewProduct, newProduct.toBuilder().version(null).updatedAt(null).build());
+    }
+
+    @Test
+    void updateProductNotSavedYetShouldThrowProductNotFound(){
+        UUID id = UUID.randomUUID();
+        Product notSavedYet = Product.builder().id(id).build();
+
+        // Without a version nothing but a missing product can leave the row untouched
+        assertThrows(ProductNotFound.class, () -> productService.update(notSavedYet));
+        verify(productRepository, never()).findVersionById(any());
+        verify(productEvents, never()).recordAll(any(), any());
+    }
+
+    @Test
+    void updateProductWithVersionOfACachedProductShouldNotReadIt(){
+        Instant createdAt = Instant.parse("2021-03-01T10:00:00Z");
+        Product versioned = expectedNewProduct.toBuilder().version(1L).build();
+        productCache.getNativeCache().synchronous()
+                .put(versioned.getId(), Optional.of(versioned.toBuilder().version(0L).createdAt(createdAt).build()));
+        when(productRepository.update(eq(versioned.getId()), eq(1L), any(), any())).thenReturn(1);
+
+        Product updated = productService.update(versioned);
+
+        assertEquals(2L, updated.getVersion());
+        assertEquals(createdAt, updated.getCreatedAt());
+        verify(productRepository, never()).findById(any());
+        verify(productRepository, never()).findVersionById(any());
+        verify(productEvents).recordAll(ProductEvent.Type.UPDATED, List.of(updated));
+    }
+
+    @Test
+    void updateProductWithVersionShouldReadTheStoredRowWhenNotCached(){
+        Product versioned = expectedNewProduct.toBuilder().version(1L).build();
+        Product stored = versioned.toBuilder().version(2L).createdAt(Instant.parse("2021-03-01T10:00:00Z")).build();
+        when(productRepository.update(eq(versioned.getId()), eq(1L), any(), any())).thenReturn(1);
+        when(productRepository.findById(versioned.getId())).thenReturn(Optional.of(stored));
+
+        assertEquals(stored, productService.update(versioned));
+        verify(productEvents).recordAll(ProductEvent.Type.UPDATED, List.of(stored));
+    }
+
+    @Test
+    void updateProductNotSavedYetWithVersionShouldThrowProductNotFound(){
+        Product versioned = expectedNewProduct.toBuilder().version(1L).build();
+        when(productRepository.update(eq(versioned.getId()), eq(1L), any(), any())).thenReturn(0);
+        when(productRepository.findVersionById(versioned.getId())).thenReturn(Optional.empty());
+
+        assertThrows(ProductNotFound.class, () -> productService.update(versioned));
+        verify(productEvents, never()).recordAll(any(), any());
+    }
+
+    @Test
+    void updateProductWithStaleVersionShouldThrowPreconditionFailed(){
+        Product stale = expectedNewProduct.toBuilder().version(1L).build();
+        when(productRepository.update(eq(stale.getId()), eq(1L), any(), any())).thenReturn(0);
+        when(productRepository.findVersionById(stale.getId()))
+                .thenReturn(Optional.of(new ProductVersion(2L, Instant.now())));
+
+        assertThrows(PreconditionFailed.class, () -> productService.update(stale));
+        verify(productEvents, never()).recordAll(any(), any());
+    }
+
+    @Test
+    void updateProductShouldEvictCachedProduct(){
+        Product current = expectedNewProduct.toBuilder().version(1L).build();
+        when(productRepository.findById(current.getId())).thenReturn(Optional.of(current));
+        when(productRepository.update(eq(current.getId()), isNull(), any(), any())).thenReturn(1);
+
+        productService.findById(expectedNewProduct.getId());
+        productService.update(expectedNewProduct);
+        productService.findById(expectedNewProduct.getId());
+        // The update reads the stored row back itself, and the second lookup misses the cache
+        verify(productRepository, times(3)).findById(expectedNewProduct.getId());
+    }
+
+    @Test
+    void patchProductShouldOnlyChangeTheFieldsItSets(){
+        Product current = expectedNewProduct.toBuilder().version(1L).build();
+        ProductPatch patch = ProductPatch.builder().price(new BigDecimal("2.0")).build();
+        when(productRepository.update(eq(current.getId()), eq(1L), eq(patch), any())).thenReturn(1);
+        when(productRepository.findById(current.getId()))
+                .thenReturn(Optional.of(patch.applyTo(current).toBuilder().version(2L).build()));
+
+        Product patched = productService.patch(current.getId(), 1L, patch);
+        assertEquals(current.getName(), patched.getName());
+        assertEquals(current.getDescription(), patched.getDescription());
+        assertEquals(new BigDecimal("2.0"), patched.getPrice());
+        assertEquals(2L, patched.getVersion());
+    }
+
+    @Test
+    void emptyPatchShouldNotWrite(){
+        Product current = expectedNewProduct.toBuilder().version(1L).build();
+        when(productRepository.findById(current.getId())).thenReturn(Optional.of(current));
+
+        assertEquals(current, productService.patch(current.getId(), null, new ProductPatch()));
+        verify(productRepository, never()).update(any(), any(), any(), any());
     }
 
     @Test
@@ -91,23 +283,191 @@ class ProductServiceTest {
         assertEquals(expectedNewProduct, newProduct);
     }
 
+    @Test
+    void findProductByIdTwiceShouldHitRepositoryOnce(){
+        when(productRepository.findById(expectedNewProduct.getId())).thenReturn(Optional.of(expectedNewProduct));
+
+        productService.findById(expectedNewProduct.getId());
+        Product cachedProduct = productService.findById(expectedNewProduct.getId());
+        assertEquals(expectedNewProduct, cachedProduct);
+        verify(productRepository, times(1)).findById(expectedNewProduct.getId());
+    }
+
+    @Test
+    void concurrentFindProductByIdShouldHitRepositoryOnce() throws Exception {
+        UUID id = expectedNewProduct.getId();
+        CountDownLatch loading = new CountDownLatch(1);
+        when(productRepository.findById(id)).thenAnswer(invocation -> {
+            loading.countDown();
+            Thread.sleep(100);
+            return Optional.of(expectedNewProduct);
+        });
+
+        List<Future<Product>> lookups = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            lookups.add(executor.submit(() -> productService.findById(id)));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 50; i++) {
+                lookups.add(executor.submit(() -> productService.findById(id)));
+            }
+            for (Future<Product> lookup : lookups) {
+                assertEquals(expectedNewProduct, lookup.get(5, TimeUnit.SECONDS));
+            }
+        }
+        verify(productRepository, times(1)).findById(id);
+    }
+
+    @Test
+    void findAllByIdShouldReadCachedProductsFromTheCacheAndTheOthersInOneQuery(){
+        Product cached = expectedNewProduct;
+        Product stored = expectedNewProduct.toBuilder().id(UUID.randomUUID()).build();
+        UUID missing = UUID.randomUUID();
+        when(productRepository.findById(cached.getId())).thenReturn(Optional.of(cached));
+        when(productRepository.findAllById(any())).thenReturn(List.of(stored));
+        productService.findById(cached.getId());
+
+        ProductLookup lookup = productService.findAllById(List.of(missing, stored.getId(), cached.getId(), missing));
+
+        assertEquals(List.of(stored, cached), lookup.getProducts());
+        assertEquals(List.of(missing), lookup.getMissing());
+        verify(productRepository).findAllById(argThat(ids ->
+                Set.copyOf((Collection<UUID>) ids).equals(Set.of(missing, stored.getId()))));
+    }
+
+    @Test
+    void findAllByIdShouldCacheTheProductsItReads(){
+        UUID id = expectedNewProduct.getId();
+        when(productRepository.findAllById(any())).thenReturn(List.of(expectedNewProduct));
+
+        productService.findAllById(List.of(id));
+        Product cachedProduct = productService.findById(id);
+
+        assertEquals(expectedNewProduct, cachedProduct);
+        verify(productRepository, never()).findById(id);
+    }
+
+    @Test
+    void findProductNotSavedYetByIdShouldCacheTheMiss(){
+        UUID id = UUID.randomUUID();
+        when(productRepository.findById(id)).thenReturn(Optional.empty());
+
+        assertThrows(ProductNotFound.class, () -> productService.findById(id));
+        assertThrows(ProductNotFound.class, () -> productService.findById(id));
+        verify(productRepository, times(1)).findById(id);
+    }
+
+    @Test
+    void deleteProductShouldRecordADeletedEvent(){
+        when(productRepository.deleteAllByIdIn(List.of(expectedNewProduct.getId()))).thenReturn(1);
+        productService.delete(expectedNewProduct.getId());
+        verify(productEvents).recordDeleted(List.of(expectedNewProduct.getId()));
+    }
+
+    @Test
+    void deleteProductNotSavedYetShouldThrowProductNotFound(){
+        when(productRepository.deleteAllByIdIn(List.of(expectedNewProduct.getId()))).thenReturn(0);
+
+        assertThrows(ProductNotFound.class, () -> productService.delete(expectedNewProduct.getId()));
+        verify(productRepository, never()).findById(any());
+        verify(productTombstoneRepository, never()).saveAll(any());
+        verify(productEvents, never()).recordDeleted(any());
+    }
+
+    @Test
+    void deleteProductShouldLeaveATombstone(){
+        when(productRepository.deleteAllByIdIn(List.of(expectedNewProduct.getId()))).thenReturn(1);
+        productService.delete(expectedNewProduct.getId());
+        verify(productTombstoneRepository).saveAll(argThat((List<ProductTombstone> tombstones) ->
+                tombstones.size() == 1
+                        && tombstones.get(0).getId().equals(expectedNewProduct.getId())
+                        && tombstones.get(0).getDeletedAt() != null));
+    }
+
+    @Test
+    void findModifiedShouldMergeProductsAndTombstonesInKeysetOrder(){
+        Instant since = Instant.parse("2021-03-01T10:00:00Z");
+        Product updated = expectedNewProduct.toBuilder().updatedAt(since.plusSeconds(2)).build();
+        Product sameInstant = expectedNewProduct.toBuilder()
+                .id(UUID.fromString("ffffffff-0000-0000-0000-000000000000"))
+                .updatedAt(since)
+                .build();
+        ProductTombstone deleted = new ProductTombstone(
+                UUID.fromString("00000000-0000-0000-0000-000000000001"), since);
+        ProductTombstone deletedLater = new ProductTombstone(UUID.randomUUID(), since.plusSeconds(3));
+        when(productRepository.findModifiedAfter(eq(since), eq(new UUID(0, 0)), any(), eq(PageRequest.of(0, 3))))
+                .thenReturn(List.of(sameInstant, updated));
+        when(productTombstoneRepository.findDeletedAfter(eq(since), eq(new UUID(0, 0)), any(), eq(3)))
+                .thenReturn(List.of(deleted, deletedLater));
+
+        List<ProductModification> modifications = productService.findModified(since, null, 3);
+
+        assertEquals(List.of(deleted.getId(), sameInstant.getId(), updated.getId()),
+                modifications.stream().map(ProductModification::getId).collect(Collectors.toList()));
+        assertTrue(modifications.get(0).isDeleted());
+        assertEquals(updated.getPrice(), modifications.get(2).getPrice());
+    }
+
+    @Test
+    void deleteProductShouldEvictCachedProduct(){
+        when(productRepository.findById(expectedNewProduct.getId())).thenReturn(Optional.of(expectedNewProduct));
+        when(productRepository.deleteAllByIdIn(List.of(expectedNewProduct.getId()))).thenReturn(1);
+
+        productService.findById(expectedNewProduct.getId());
+        productService.delete(expectedNewProduct.getId());
+        productService.findById(expectedNewProduct.getId());
+        verify(productRepository, times(2)).findById(expectedNewProduct.getId());
+    }
+
     @Test
     void findAllProductsShouldReturnAllProducts(){
-        when(productRepository.findAll()).thenReturn(products);
+        when(productRepository.findAllByOrderById(PageRequest.of(0, 5))).thenReturn(products);
 
-        List<Product> productsReturned = productService.findAll();
+        List<Product> productsReturned = productService.findAll(null, 5);
         assertEquals(products, productsReturned);
     }
 
     @Test
     void findAllProductsShouldReturnEmptyList(){
         List<Product> emptyList = List.of();
-        when(productRepository.findAll()).thenReturn(emptyList);
+        when(productRepository.findAllByOrderById(PageRequest.of(0, 5))).thenReturn(emptyList);
 
-        List<Product> productsReturned = productService.findAll();
+        List<Product> productsReturned = productService.findAll(null, 5);
         assertEquals(emptyList, productsReturned);
     }
 
+    @Test
+    void findAllProductsAfterCursorShouldReturnNextPage(){
+        UUID after = UUID.randomUUID();
+        when(productRepository.findByIdGreaterThanOrderById(after, PageRequest.of(0, 2))).thenReturn(compatibleProducts);
+
+        List<Product> productsReturned = productService.findAll(after, 2);
+        assertEquals(compatibleProducts, productsReturned);
+    }
+
+    @Test
+    void streamAllProductsShouldHandEveryProductToConsumer(){
+        List<Product> firstPage = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            firstPage.add(Product.builder().id(UUID.randomUUID()).build());
+        }
+        UUID last = firstPage.get(firstPage.size() - 1).getId();
+        when(productRepository.findAllProjected(any(), isNull(), eq(500))).thenReturn(firstPage);
+        when(productRepository.findAllProjected(any(), eq(last), eq(500))).thenReturn(compatibleProducts);
+
+        List<Product> productsStreamed = new ArrayList<>();
+        productService.streamAll(productsStreamed::add);
+        assertEquals(502, productsStreamed.size());
+        assertEquals(compatibleProducts, productsStreamed.subList(500, 502));
+        verify(productRepository, times(2)).findAllProjected(any(), any(), anyInt());
+    }
+
+    @Test
+    void streamAllProductsShouldNotHoldADatabasePermitWhileTheConsumerRuns(){
+        when(productRepository.findAllProjected(any(), isNull(), eq(500))).thenReturn(compatibleProducts);
+
+        productService.streamAll(product -> assertEquals(0, databaseBulkhead.getActiveCalls()));
+    }
+
     @Test
     void findProductsBySearchParametersShouldReturnCompatibleProducts(){
         MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
@@ -117,13 +477,13 @@ class ProductServiceTest {
 
         when(productRepository.findBySearchParameters(
                 params.getFirst("q"),
-                Double.valueOf(Objects.requireNonNull(params.getFirst("min_price"))),
-                Double.valueOf(Objects.requireNonNull(params.getFirst("max_price"))))).thenReturn(compatibleProducts);
+                new BigDecimal(Objects.requireNonNull(params.getFirst("min_price"))),
+                new BigDecimal(Objects.requireNonNull(params.getFirst("max_price"))))).thenReturn(compatibleProducts);
 
         List<Product> productsReturned = productService.findBySearchParameters(
                 params.getFirst("q"),
-                Double.valueOf(Objects.requireNonNull(params.getFirst("min_price"))),
-                Double.valueOf(Objects.requireNonNull(params.getFirst("max_price")))
+                new BigDecimal(Objects.requireNonNull(params.getFirst("min_price"))),
+                new BigDecimal(Objects.requireNonNull(params.getFirst("max_price")))
         );
         assertEquals(compatibleProducts, productsReturned);
     }
@@ -136,14 +496,65 @@ class ProductServiceTest {
 
         when(productRepository.findBySearchParameters(
                 params.getFirst("q"),
-                Double.MIN_VALUE,
-                Double.valueOf(Objects.requireNonNull(params.getFirst("max_price"))))).thenReturn(compatibleProducts);
+                BigDecimal.ZERO,
+                new BigDecimal(Objects.requireNonNull(params.getFirst("max_price"))))).thenReturn(compatibleProducts);
 
         List<Product> productsReturned = productService.findBySearchParameters(
                 params.getFirst("q"),
-                Double.MIN_VALUE,
-                Double.valueOf(Objects.requireNonNull(params.getFirst("max_price")))
+                BigDecimal.ZERO,
+                new BigDecimal(Objects.requireNonNull(params.getFirst("max_price")))
         );
         assertEquals(compatibleProducts, productsReturned);
     }
+
+    @Test
+    void databaseCallsShouldRunInsideTheBulkhead(){
+        long waits = meterRegistry.get("product.db.bulkhead.wait").timer().count();
+        when(productRepository.findAllByOrderById(PageRequest.of(0, 10))).thenAnswer(invocation -> {
+            assertEquals(1, databaseBulkhead.getActiveCalls());
+            return products;
+        });
+
+        assertEquals(products, productService.findAll(null, 10));
+        assertEquals(0, databaseBulkhead.getActiveCalls());
+        assertEquals(waits + 1, meterRegistry.get("product.db.bulkhead.wait").timer().count());
+    }
+
+    @Test
+    void cachedProductShouldNotTakeADatabasePermit(){
+        when(productRepository.findById(expectedNewProduct.getId())).thenReturn(Optional.of(expectedNewProduct));
+        productService.findById(expectedNewProduct.getId());
+        long waits = meterRegistry.get("product.db.bulkhead.wait").timer().count();
+
+        productService.findById(expectedNewProduct.getId());
+        assertEquals(waits, meterRegistry.get("product.db.bulkhead.wait").timer().count());
+    }
+
+    @Test
+    void findVersionOfCachedProductShouldNotHitRepository(){
+        Product versioned = expectedNewProduct.toBuilder().version(3L).build();
+        when(productRepository.findById(versioned.getId())).thenReturn(Optional.of(versioned));
+        productService.findById(versioned.getId());
+
+        assertEquals(3L, productService.findVersionById(versioned.getId()).getVersion());
+        verify(productRepository, never()).findVersionById(any());
+    }
+
+    @Test
+    void findVersionOfProductNotSavedYetShouldThrowProductNotFound(){
+        when(productRepository.findVersionById(expectedNewProduct.getId())).thenReturn(Optional.empty());
+
+        assertThrows(ProductNotFound.class, () -> productService.findVersionById(expectedNewProduct.getId()));
+    }
+
+    @Test
+    void updateProductWithoutVersionShouldOverwriteWhateverVersionIsStored(){
+        Product changed = expectedNewProduct.toBuilder().price(new BigDecimal("2.0")).build();
+        when(productRepository.update(eq(changed.getId()), isNull(), any(), any())).thenReturn(1);
+        when(productRepository.findById(changed.getId()))
+                .thenReturn(Optional.of(changed.toBuilder().version(4L).build()));
+
+        assertEquals(4L, productService.update(changed).getVersion());
+        verify(productRepository, never()).findVersionById(any());
+    }
 }
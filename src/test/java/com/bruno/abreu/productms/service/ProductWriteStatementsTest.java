@@ -0,0 +1,193 @@
+package com.bruno.abreu.productms.service;
+
+import com.bruno.abreu.productms.config.SyncProperties;
+import com.bruno.abreu.productms.exception.ProductNotFound;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductModification;
+import com.bruno.abreu.productms.model.ProductPatch;
+import com.bruno.abreu.productms.repository.JdbcCapture;
+import com.bruno.abreu.productms.service.cache.ProductCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the statements a write sends to the product table, leaving out the outbox and tombstone inserts.
+ */
+@SpringBootTest(properties = "product.search.backend=jpa")
+@Import(JdbcCapture.class)
+class ProductWriteStatementsTest {
+
+    private static final Pattern PRODUCT_TABLE = Pattern.compile("\\bproduct\\b");
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private SyncProperties syncProperties;
+
+    private Product created;
+
+    @BeforeEach
+    void create() {
+        created = productService.create(Product.builder()
+                .name("Product")
+                .description("Description")
+                .price(new BigDecimal("1.00"))
+                .build());
+        productCache.evictAll();
+        JdbcCapture.clear();
+    }
+
+    @Test
+    void updateWithVersionOfACachedProductShouldOnlyIssueTheUpdate() {
+        Product cached = productService.findById(created.getId());
+        JdbcCapture.clear();
+
+        Product updated = productService.update(created.toBuilder().price(new BigDecimal("2.50")).build());
+
+        String update = single(productStatements());
+        assertTrue(update.startsWith("update product set "), update);
+        assertTrue(update.contains("where id=? and version=?"), update);
+        assertEquals(created.getVersion() + 1, updated.getVersion());
+        assertEquals(cached.getCreatedAt(), updated.getCreatedAt());
+        assertEquals(updated.getVersion(), productService.findVersionById(created.getId()).getVersion());
+    }
+
+    @Test
+    void updateWithVersionOfAnUncachedProductShouldReadTheRowBackAfterTheUpdate() {
+        Product updated = productService.update(created.toBuilder().price(new BigDecimal("2.50")).build());
+
+        List<String> statements = productStatements();
+        assertEquals(2, statements.size(), statements::toString);
+        assertTrue(statements.get(0).startsWith("update product set "), statements.get(0));
+        assertTrue(statements.get(1).startsWith("select "), statements.get(1));
+        assertEquals(created.getVersion() + 1, updated.getVersion());
+        productCache.evictAll();
+        assertEquals(productService.findById(created.getId()).getCreatedAt(), updated.getCreatedAt());
+    }
+
+    @Test
+    void updateWithoutVersionShouldUpdateTheRowThenReadItBack() {
+        Product cached = productService.findById(created.getId());
+        JdbcCapture.clear();
+
+        Product updated = productService.update(created.toBuilder().version(null).price(new BigDecimal("2.50")).build());
+
+        // No version is checked, the read only fetches the one the update moved to
+        List<String> statements = productStatements();
+        assertEquals(2, statements.size(), statements::toString);
+        assertTrue(statements.get(0).startsWith("update product set "), statements.get(0));
+        assertFalse(statements.get(0).contains("version=?"), statements.get(0));
+        assertTrue(statements.get(1).startsWith("select "), statements.get(1));
+        assertEquals(created.getVersion() + 1, updated.getVersion());
+        assertEquals(cached.getCreatedAt(), updated.getCreatedAt());
+    }
+
+    @Test
+    void updateWithoutVersionOfMissingProductShouldThrowProductNotFoundFromTheUpdate() {
+        assertThrows(ProductNotFound.class, () -> productService.update(created.toBuilder()
+                .id(UUID.randomUUID()).version(null).build()));
+
+        assertTrue(single(productStatements()).startsWith("update product set "));
+    }
+
+    @Test
+    void updateWithoutVersionOfAStaleCachedProductShouldNotFail() {
+        productService.findById(created.getId());
+        productService.update(created.toBuilder().price(new BigDecimal("2.00")).build());
+        Product stale = created.toBuilder().version(null).build();
+        productCache.getNativeCache().synchronous().put(created.getId(), Optional.of(created));
+
+        Product updated = productService.update(stale.toBuilder().price(new BigDecimal("2.50")).build());
+
+        assertEquals(created.getVersion() + 2, updated.getVersion());
+    }
+
+    @Test
+    void patchShouldOnlySetTheChangedColumns() {
+        productService.findById(created.getId());
+        JdbcCapture.clear();
+
+        Product patched = productService.patch(created.getId(), created.getVersion(),
+                ProductPatch.builder().price(new BigDecimal("2.50")).build());
+
+        List<String> statements = productStatements();
+        assertEquals(2, statements.size(), statements::toString);
+        String update = statements.get(0);
+        assertTrue(update.startsWith("update product set "), update);
+        assertTrue(update.contains("price=?"), update);
+        assertFalse(update.contains("name=?"), update);
+        assertFalse(update.contains("description=?"), update);
+        assertEquals("Product", patched.getName());
+        productCache.evictAll();
+        Product reloaded = productService.findById(created.getId());
+        assertEquals("Description", reloaded.getDescription());
+        assertEquals(0, new BigDecimal("2.50").compareTo(reloaded.getPrice()));
+        assertEquals(patched.getVersion(), reloaded.getVersion());
+        assertEquals(patched.getUpdatedAt(), reloaded.getUpdatedAt());
+    }
+
+    @Test
+    void deleteShouldOnlyIssueTheDelete() {
+        productService.delete(created.getId());
+
+        assertTrue(single(productStatements()).startsWith("delete from product where "));
+        assertThrows(ProductNotFound.class, () -> productService.findById(created.getId()));
+    }
+
+    @Test
+    void deleteOfProductNotSavedYetShouldThrowProductNotFoundFromTheDelete() {
+        assertThrows(ProductNotFound.class, () -> productService.delete(UUID.randomUUID()));
+
+        assertTrue(single(productStatements()).startsWith("delete from product where "));
+    }
+
+    @Test
+    void softDeleteShouldOnlyMarkTheRowAndBeReportedAsDeleted() {
+        syncProperties.setSoftDelete(true);
+        syncProperties.setSettleTime(Duration.ZERO);
+        try {
+            productService.delete(created.getId());
+
+            assertTrue(single(productStatements()).startsWith("update product set "));
+            assertThrows(ProductNotFound.class, () -> productService.findById(created.getId()));
+            assertThrows(ProductNotFound.class, () -> productService.delete(created.getId()));
+            List<ProductModification> modifications = productService.findModified(created.getCreatedAt(), null, 100);
+            assertTrue(modifications.stream()
+                    .anyMatch(modification -> modification.getId().equals(created.getId()) && modification.isDeleted()));
+        } finally {
+            syncProperties.setSoftDelete(false);
+            syncProperties.setSettleTime(Duration.ofSeconds(5));
+        }
+    }
+
+    /**
+     * Statements on the product table itself, not on product_event or product_tombstone.
+     */
+    private static List<String> productStatements() {
+        return JdbcCapture.statements().stream()
+                .filter(sql -> PRODUCT_TABLE.matcher(sql).find())
+                .collect(Collectors.toList());
+    }
+
+    private static String single(List<String> statements) {
+        assertEquals(1, statements.size(), () -> "Expected one statement but got " + statements);
+        return statements.get(0);
+    }
+}
@@ -0,0 +1,144 @@
+package com.bruno.abreu.productms.service;
+
+import com.bruno.abreu.productms.config.SyncProperties;
+import com.bruno.abreu.productms.exception.ProductNotFound;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.repository.ReactiveProductEventRepository;
+import com.bruno.abreu.productms.repository.ReactiveProductRepository;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataR2dbcTest(properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-product-service-database",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.main.web-application-type=none"})
+@ActiveProfiles("reactive")
+@Import({ReactiveProductService.class, ReactiveProductRepository.class, ReactiveProductEventRepository.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@EnableConfigurationProperties(SyncProperties.class)
+class ReactiveProductServiceTest {
+
+    private static final UUID FIRST_ID = UUID.fromString("568d791e-6c2e-44e3-925c-e6cee648df26");
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private ReactiveProductService productService;
+
+    @Autowired
+    private SyncProperties syncProperties;
+
+    @BeforeEach
+    void setup() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .populate(connectionFactory)
+                .block();
+    }
+
+    @AfterEach
+    void restoreSoftDelete() {
+        syncProperties.setSoftDelete(false);
+    }
+
+    @Test
+    void createAndUpdateShouldRecordTheStoredProduct() {
+        Product created = productService.create(Product.builder()
+                .name("Product 6")
+                .description("Description 6")
+                .price(new BigDecimal("6.60"))
+                .build()).block();
+        Product updated = productService.update(created.toBuilder().price(new BigDecimal("7.70")).build()).block();
+
+        assertEquals(1L, updated.getVersion());
+        assertEquals(created.getCreatedAt(), updated.getCreatedAt());
+        List<Map<String, Object>> events = events(created.getId());
+        assertEquals(List.of("CREATED", "UPDATED"), events.stream().map(event -> event.get("TYPE")).toList());
+        assertEquals(List.of(0L, 1L), events.stream().map(event -> ((Number) event.get("VERSION")).longValue()).toList());
+        assertTrue(events.get(1).get("PAYLOAD").toString().contains("7.70"));
+    }
+
+    @Test
+    void updateOfMissingProductShouldRecordNothing() {
+        UUID id = UUID.randomUUID();
+
+        StepVerifier.create(productService.update(Product.builder().id(id).name("Product").description("Description")
+                        .price(BigDecimal.ONE).build()))
+                .verifyError(ProductNotFound.class);
+        assertTrue(events(id).isEmpty());
+    }
+
+    @Test
+    void deleteShouldRemoveTheRowAndInsertATombstone() {
+        productService.delete(FIRST_ID).block();
+
+        assertEquals(0L, count("select count(*) from product where id = :id"));
+        assertEquals(1L, count("select count(*) from product_tombstone where id = :id"));
+        assertEquals(List.of("DELETED"), events(FIRST_ID).stream().map(event -> event.get("TYPE")).toList());
+        StepVerifier.create(productService.delete(FIRST_ID))
+                .verifyError(ProductNotFound.class);
+        assertEquals(1, events(FIRST_ID).size());
+    }
+
+    @Test
+    void softDeleteShouldOnlyMarkTheRow() {
+        syncProperties.setSoftDelete(true);
+
+        productService.delete(FIRST_ID).block();
+
+        assertEquals(1L, count("select count(*) from product where id = :id and deleted_at is not null and version = 1"));
+        assertEquals(0L, count("select count(*) from product_tombstone where id = :id"));
+        assertEquals(List.of("DELETED"), events(FIRST_ID).stream().map(event -> event.get("TYPE")).toList());
+        StepVerifier.create(productService.findById(FIRST_ID))
+                .verifyError(ProductNotFound.class);
+    }
+
+    private List<Map<String, Object>> events(UUID id) {
+        return databaseClient.sql("select type, version, payload from product_event where product_id = :id order by id")
+                .bind("id", bytes(id))
+                .fetch()
+                .all()
+                .collectList()
+                .block();
+    }
+
+    private long count(String sql) {
+        return databaseClient.sql(sql)
+                .bind("id", bytes(FIRST_ID))
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .block();
+    }
+
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
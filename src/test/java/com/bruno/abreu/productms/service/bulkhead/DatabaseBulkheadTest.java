@@ -0,0 +1,99 @@
+package com.bruno.abreu.productms.service.bulkhead;
+
+import com.bruno.abreu.productms.exception.DatabaseBusy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseBulkheadTest {
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void callShouldReleasePermitAfterwards() {
+        DatabaseBulkhead bulkhead = new DatabaseBulkhead(1, Duration.ofMillis(100), meterRegistry);
+
+        assertEquals("first", bulkhead.call(() -> "first"));
+        assertEquals("second", bulkhead.call(() -> "second"));
+        assertEquals(0, bulkhead.getActiveCalls());
+        assertEquals(2, meterRegistry.get("product.db.bulkhead.wait").timer().count());
+    }
+
+    @Test
+    void nestedCallsShouldReuseThePermitHeldByTheThread() {
+        DatabaseBulkhead bulkhead = new DatabaseBulkhead(1, Duration.ofMillis(100), meterRegistry);
+
+        String result = bulkhead.call(() -> bulkhead.call(() -> "nested"));
+
+        assertEquals("nested", result);
+        assertEquals(0, bulkhead.getActiveCalls());
+    }
+
+    @Test
+    void callShouldThrowDatabaseBusyWhenNoPermitIsReleasedInTime() throws Exception {
+        DatabaseBulkhead bulkhead = new DatabaseBulkhead(1, Duration.ofMillis(50), meterRegistry);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<?> holder = executor.submit(() -> bulkhead.call(() -> {
+                holding.countDown();
+                return await(release);
+            }));
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+            assertThrows(DatabaseBusy.class, () -> bulkhead.call(() -> "late"));
+            assertEquals(1, meterRegistry.get("product.db.bulkhead.rejected").counter().count());
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentCallsShouldNeverExceedThePermits() throws Exception {
+        DatabaseBulkhead bulkhead = new DatabaseBulkhead(4, Duration.ofSeconds(10), meterRegistry);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                executor.submit(() -> bulkhead.call(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    return running.decrementAndGet();
+                }));
+            }
+        }
+
+        assertTrue(maxRunning.get() <= 4);
+        assertEquals(0, bulkhead.getQueueLength());
+        assertEquals(1000, meterRegistry.get("product.db.bulkhead.wait").timer().count());
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
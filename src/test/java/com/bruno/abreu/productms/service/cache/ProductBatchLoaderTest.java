@@ -0,0 +1,138 @@
+package com.bruno.abreu.productms.service.cache;
+
+import com.bruno.abreu.productms.config.ProductCacheProperties;
+import com.bruno.abreu.productms.exception.DatabaseBusy;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.repository.ProductRepository;
+import com.bruno.abreu.productms.service.bulkhead.DatabaseBulkhead;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+class ProductBatchLoaderTest {
+
+    private ProductRepository productRepository;
+    private DatabaseBulkhead databaseBulkhead;
+    private ProductCacheProperties properties;
+
+    @BeforeEach
+    void setup() {
+        productRepository = mock(ProductRepository.class);
+        databaseBulkhead = new DatabaseBulkhead(10, Duration.ofSeconds(1), new SimpleMeterRegistry());
+        properties = new ProductCacheProperties();
+    }
+
+    @Test
+    void loadWithoutWindowShouldReadEachIdOnItsOwn() {
+        Product product = product();
+        when(productRepository.findById(product.getId())).thenReturn(Optional.of(product));
+        ProductBatchLoader loader = new ProductBatchLoader(productRepository, databaseBulkhead, properties);
+
+        assertEquals(Optional.of(product), loader.load(product.getId()).join());
+        verify(productRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void concurrentLoadsWithinTheWindowShouldShareOneQuery() throws Exception {
+        properties.setBatchWindow(Duration.ofMillis(500));
+        ProductBatchLoader loader = new ProductBatchLoader(productRepository, databaseBulkhead, properties);
+        List<Product> found = List.of(product(), product(), product());
+        List<UUID> ids = new ArrayList<>();
+        found.forEach(product -> ids.add(product.getId()));
+        ids.add(UUID.randomUUID());
+        ids.add(UUID.randomUUID());
+        when(productRepository.findAllById(anyIterable())).thenReturn(found);
+
+        List<Optional<Product>> loaded = loadConcurrently(loader, ids);
+
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i < found.size() ? Optional.of(found.get(i)) : Optional.empty(), loaded.get(i));
+        }
+        verify(productRepository).findAllById(argThat(batch -> toSet(batch).equals(new HashSet<>(ids))));
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void fullBatchShouldBeLoadedBeforeTheWindowEnds() throws Exception {
+        properties.setBatchWindow(Duration.ofMinutes(1));
+        properties.setBatchMaxSize(3);
+        ProductBatchLoader loader = new ProductBatchLoader(productRepository, databaseBulkhead, properties);
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of());
+
+        List<Optional<Product>> loaded =
+                loadConcurrently(loader, List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()));
+
+        assertEquals(List.of(Optional.empty(), Optional.empty(), Optional.empty()), loaded);
+        verify(productRepository).findAllById(anyIterable());
+    }
+
+    @Test
+    void failedQueryShouldFailEveryLoadOfTheBatch() throws Exception {
+        properties.setBatchWindow(Duration.ofMillis(500));
+        ProductBatchLoader loader = new ProductBatchLoader(productRepository, databaseBulkhead, properties);
+        when(productRepository.findAllById(anyIterable())).thenThrow(new DatabaseBusy());
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> loadConcurrently(loader, List.of(UUID.randomUUID(), UUID.randomUUID())));
+
+        assertInstanceOf(DatabaseBusy.class, failure.getCause());
+        verify(productRepository).findAllById(anyIterable());
+    }
+
+    /**
+     * Loads each id on its own thread, all of them started together.
+     */
+    private static List<Optional<Product>> loadConcurrently(ProductBatchLoader loader, List<UUID> ids)
+            throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Product>>> futures = new ArrayList<>();
+        List<Optional<Product>> loaded = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (UUID id : ids) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        return loader.load(id).join();
+                    } catch (CompletionException e) {
+                        throw (Exception) e.getCause();
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Optional<Product>> future : futures) {
+                loaded.add(future.get(10, TimeUnit.SECONDS));
+            }
+        }
+        return loaded;
+    }
+
+    private static Set<UUID> toSet(Iterable<UUID> ids) {
+        Set<UUID> set = new HashSet<>();
+        ids.forEach(set::add);
+        return set;
+    }
+
+    private static Product product() {
+        return Product.builder().id(UUID.randomUUID()).name("Name").build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.bruno.abreu.productms.service.cache;
+
+import com.bruno.abreu.productms.config.ProductCacheProperties;
+import com.bruno.abreu.productms.exception.DatabaseBusy;
+import com.bruno.abreu.productms.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCacheTest {
+
+    private ProductCache productCache;
+    private Product product;
+
+    @BeforeEach
+    void setup() {
+        productCache = new ProductCache(new ProductCacheProperties());
+        product = Product.builder()
+                .id(UUID.randomUUID())
+                .name("Product")
+                .description("Description")
+                .price(new BigDecimal("10.50"))
+                .version(0L)
+                .build();
+    }
+
+    @Test
+    void concurrentMissesShouldWaitForOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Optional<Product>> batch = new CompletableFuture<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Product> first = executor.submit(() -> productCache.get(product.getId(), id -> {
+                loads.incrementAndGet();
+                return batch;
+            }));
+            awaitLoading(product.getId());
+            Future<Product> second = executor.submit(() -> productCache.get(product.getId(), id -> {
+                loads.incrementAndGet();
+                return completedFuture(Optional.of(product));
+            }));
+
+            batch.complete(Optional.of(product));
+
+            assertEquals(product, first.get(5, TimeUnit.SECONDS));
+            assertEquals(product, second.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void loadInProgressShouldNotBlockPeekOrEvict() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Product> loading = executor.submit(() -> productCache.get(product.getId(), id -> {
+                await(release);
+                return completedFuture(Optional.of(product));
+            }));
+            awaitLoading(product.getId());
+
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+                assertNull(productCache.peek(product.getId()));
+                productCache.evict(product.getId());
+            });
+            release.countDown();
+
+            assertEquals(product, loading.get(5, TimeUnit.SECONDS));
+        }
+        assertNull(productCache.peek(product.getId()));
+    }
+
+    @Test
+    void failedLoadShouldNotBeCached() {
+        assertThrows(DatabaseBusy.class, () -> productCache.get(product.getId(), id -> {
+            throw new DatabaseBusy();
+        }));
+        assertThrows(DatabaseBusy.class, () -> productCache.get(product.getId(),
+                id -> CompletableFuture.failedFuture(new DatabaseBusy())));
+
+        assertEquals(product, productCache.get(product.getId(), id -> completedFuture(Optional.of(product))));
+        assertEquals(product, productCache.peek(product.getId()));
+    }
+
+    private void awaitLoading(UUID id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (productCache.getNativeCache().getIfPresent(id) == null) {
+            assertTrue(System.nanoTime() < deadline, "load not started");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.bruno.abreu.productms.service.cache;
+
+import com.bruno.abreu.productms.config.ProductCacheProperties;
+import com.bruno.abreu.productms.exception.ProductNotFound;
+import com.bruno.abreu.productms.model.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two instances sharing an embedded Redis.
+ */
+class SharedProductCacheTest {
+
+    private static RedisServer redis;
+    private static int port;
+
+    private final UUID id = UUID.randomUUID();
+    private final Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    private SharedProductCache firstShared;
+    private SharedProductCache secondShared;
+    private ProductCache first;
+    private ProductCache second;
+    private MeterRegistry secondMetrics;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setup() {
+        ProductCacheProperties properties = new ProductCacheProperties();
+        properties.getShared().setUrl("redis://localhost:" + port);
+        properties.getShared().setKeyPrefix("test-" + UUID.randomUUID() + ":");
+        // Generous enough that a loaded machine never falls back to loading on a Redis or lease timeout
+        properties.getShared().setTimeout(Duration.ofSeconds(5));
+        properties.getShared().setLoadTimeout(Duration.ofSeconds(30));
+        firstShared = new SharedProductCache(properties);
+        secondShared = new SharedProductCache(properties);
+        secondMetrics = new SimpleMeterRegistry();
+        secondShared.bindTo(secondMetrics);
+        first = new ProductCache(properties, firstShared);
+        second = new ProductCache(properties, secondShared);
+    }
+
+    @AfterEach
+    void close() {
+        firstShared.close();
+        secondShared.close();
+    }
+
+    @Test
+    void getShouldReadProductsLoadedByAnotherInstance() {
+        Product product = product(0);
+        first.get(id, missing -> completedFuture(Optional.of(product)));
+
+        Product cached = second.get(id, missing -> fail("loaded again"));
+
+        assertEquals(product, cached);
+    }
+
+    @Test
+    void getShouldReadMissesLoadedByAnotherInstance() {
+        assertThrows(ProductNotFound.class, () -> first.get(id, missing -> completedFuture(Optional.empty())));
+
+        assertThrows(ProductNotFound.class, () -> second.get(id, missing -> fail("loaded again")));
+    }
+
+    @Test
+    void getAllShouldReadProductsAndMissesLoadedByAnotherInstance() {
+        UUID missing = UUID.randomUUID();
+        first.getAll(List.of(id, missing), ids -> Map.of(id, Optional.of(product(0)), missing, Optional.empty()));
+
+        Map<UUID, Optional<Product>> cached = second.getAll(List.of(missing, id), ids -> fail("loaded again"));
+
+        assertEquals(Map.of(id, Optional.of(product(0)), missing, Optional.empty()), cached);
+    }
+
+    @Test
+    void writtenShouldEvictTheProductOnEveryInstance() throws InterruptedException {
+        first.get(id, missing -> completedFuture(Optional.of(product(0))));
+        second.get(id, missing -> fail("loaded again"));
+
+        first.written(List.of(product(1)));
+
+        awaitEvicted(second);
+        assertNull(first.peek(id));
+        assertEquals(1L, second.get(id, missing -> completedFuture(Optional.of(product(1)))).getVersion());
+        assertEquals(1L, first.get(id, missing -> fail("loaded again")).getVersion());
+    }
+
+    @Test
+    void getShouldNotCacheAVersionOlderThanAConcurrentWrite() {
+        Product loaded = first.get(id, missing -> {
+            second.written(List.of(product(1)));
+            return completedFuture(Optional.of(product(0)));
+        });
+
+        assertEquals(0L, loaded.getVersion());
+        AtomicInteger loads = new AtomicInteger();
+        Product current = secondShared.get(id, missing -> {
+            loads.incrementAndGet();
+            return Optional.of(product(1));
+        }).orElseThrow();
+        assertEquals(1, loads.get());
+        assertEquals(1L, current.getVersion());
+    }
+
+    @Test
+    void deletedShouldBeNotFoundOnEveryInstance() throws InterruptedException {
+        first.get(id, missing -> completedFuture(Optional.of(product(0))));
+        second.get(id, missing -> fail("loaded again"));
+
+        first.deleted(List.of(id));
+
+        awaitEvicted(second);
+        assertThrows(ProductNotFound.class, () -> second.get(id, missing -> fail("loaded again")));
+        assertThrows(ProductNotFound.class, () -> first.get(id, missing -> fail("loaded again")));
+    }
+
+    @Test
+    void getShouldNotCacheAProductDeletedDuringTheLoad() throws InterruptedException {
+        Product loaded = first.get(id, missing -> {
+            second.deleted(List.of(id));
+            return completedFuture(Optional.of(product(0)));
+        });
+
+        assertEquals(0L, loaded.getVersion());
+        awaitEvicted(first);
+        assertThrows(ProductNotFound.class, () -> first.get(id, missing -> fail("loaded again")));
+    }
+
+    @Test
+    void concurrentMissesOnSeveralInstancesShouldLoadOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Product> firstGet = executor.submit(() -> first.get(id, missing -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return completedFuture(Optional.of(product(0)));
+            }));
+            assertTrue(loading.await(30, TimeUnit.SECONDS));
+            Future<Product> secondGet = executor.submit(() -> second.get(id, missing -> {
+                loads.incrementAndGet();
+                return completedFuture(Optional.of(product(0)));
+            }));
+            awaitLeaseWait();
+            release.countDown();
+
+            assertEquals(firstGet.get(30, TimeUnit.SECONDS), secondGet.get(30, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void waitingForAnotherInstanceLeaseShouldNotLockTheNearCache() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Product> firstGet = executor.submit(() -> first.get(id, missing -> {
+                loading.countDown();
+                await(release);
+                return completedFuture(Optional.of(product(0)));
+            }));
+            assertTrue(loading.await(30, TimeUnit.SECONDS));
+            Future<Product> secondGet = executor.submit(() -> second.get(id, missing -> fail("loaded again")));
+            awaitLeaseWait();
+
+            assertTimeoutPreemptively(Duration.ofMillis(500), () -> {
+                assertNull(second.peek(id));
+                second.evict(id);
+            });
+            assertFalse(secondGet.isDone());
+            release.countDown();
+
+            assertEquals(firstGet.get(30, TimeUnit.SECONDS), secondGet.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    private Product product(long version) {
+        return Product.builder()
+                .id(id)
+                .name("Product " + version)
+                .description("Description " + version)
+                .price(new BigDecimal("10.50"))
+                .version(version)
+                .createdAt(createdAt)
+                .updatedAt(createdAt.plusSeconds(version))
+                .build();
+    }
+
+    private void awaitEvicted(ProductCache productCache) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (productCache.getNativeCache().getIfPresent(id) != null) {
+            assertTrue(System.nanoTime() < deadline, "invalidation not received");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Waits until the second instance found the lease taken and started waiting for the first one.
+     */
+    private void awaitLeaseWait() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (secondMetrics.get("product.cache.shared.lease.waits").functionCounter().count() == 0) {
+            assertTrue(System.nanoTime() < deadline, "lease not reached");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.bruno.abreu.productms.service.outbox;
+
+import com.bruno.abreu.productms.exception.ChangesExpired;
+import com.bruno.abreu.productms.exception.PreconditionFailed;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.model.ProductEvent;
+import com.bruno.abreu.productms.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "product.search.backend=jpa")
+class ProductEventRelayTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductEventRelay productEventRelay;
+
+    @Autowired
+    private InMemoryProductEventSink sink;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clearEvents() {
+        jdbcTemplate.update("delete from product_event");
+        jdbcTemplate.update("update product_event_cursor set last_offset = 0");
+        sink.clear();
+    }
+
+    @Test
+    void relayShouldPublishEveryChangeInOrderWithConsecutiveOffsets() {
+        Product created = productService.create(newProduct());
+        Product updated = productService.update(created.toBuilder().price(new BigDecimal("2.50")).build());
+        productService.delete(created.getId());
+
+        assertTrue(sink.getEvents().isEmpty());
+        assertEquals(3, productEventRelay.relay());
+
+        List<ProductEvent> events = sink.getEvents();
+        assertEquals(List.of(1L, 2L, 3L), events.stream().map(ProductEvent::getOffset).collect(Collectors.toList()));
+        assertEquals(List.of(ProductEvent.Type.CREATED, ProductEvent.Type.UPDATED, ProductEvent.Type.DELETED),
+                events.stream().map(ProductEvent::getType).collect(Collectors.toList()));
+        assertTrue(events.stream().allMatch(event -> event.getProductId().equals(created.getId())));
+        assertEquals(updated.getVersion(), events.get(1).getVersion());
+        assertTrue(events.get(1).getPayload().contains("\"price\":2.50"));
+        assertNull(events.get(2).getPayload());
+    }
+
+    @Test
+    void relayShouldPublishEachEventOnce() {
+        productService.create(newProduct());
+
+        assertEquals(1, productEventRelay.relay());
+        assertEquals(0, productEventRelay.relay());
+        productService.create(newProduct());
+        assertEquals(1, productEventRelay.relay());
+
+        assertEquals(List.of(1L, 2L),
+                sink.getEvents().stream().map(ProductEvent::getOffset).collect(Collectors.toList()));
+    }
+
+    @Test
+    void failedChangeShouldNotRecordAnEvent() {
+        Product created = productService.create(newProduct());
+        Product stale = created.toBuilder().version(created.getVersion() - 1).build();
+
+        assertThrows(PreconditionFailed.class, () -> productService.update(stale));
+
+        productEventRelay.relay();
+        assertEquals(1, sink.getEvents().size());
+    }
+
+    @Test
+    void findChangesShouldOnlyReturnPublishedChangesAfterTheOffset() {
+        productService.createAll(List.of(newProduct(), newProduct(), newProduct()));
+        assertTrue(productService.findChanges(null, 10).isEmpty());
+
+        productEventRelay.relay();
+
+        assertEquals(3, productService.findChanges(null, 10).size());
+        List<ProductEvent> changes = productService.findChanges(1L, 10);
+        assertEquals(List.of(2L, 3L), changes.stream().map(ProductEvent::getOffset).collect(Collectors.toList()));
+        assertEquals(1, productService.findChanges(1L, 1).size());
+        assertTrue(productService.findChanges(3L, 10).isEmpty());
+    }
+
+    @Test
+    void findChangesBeforeTheRetainedOffsetsShouldThrowChangesExpired() {
+        productService.createAll(List.of(newProduct(), newProduct(), newProduct()));
+        productEventRelay.relay();
+        jdbcTemplate.update("delete from product_event where event_offset <= 2");
+
+        assertThrows(ChangesExpired.class, () -> productService.findChanges(1L, 10));
+        assertEquals(1, productService.findChanges(2L, 10).size());
+        assertEquals(1, productService.findChanges(null, 10).size());
+    }
+
+    @Test
+    void pruneShouldOnlyDeletePublishedEventsPastTheRetention() {
+        productService.createAll(List.of(newProduct(), newProduct(), newProduct()));
+        productEventRelay.relay();
+        productService.create(newProduct());
+        jdbcTemplate.update("update product_event set occurred_at = dateadd('DAY', -8, occurred_at) "
+                + "where event_offset <= 2 or event_offset is null");
+
+        assertEquals(2, productEventRelay.prune());
+
+        assertEquals(List.of(3L), jdbcTemplate.queryForList(
+                "select event_offset from product_event where event_offset is not null", Long.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from product_event where event_offset is null", Integer.class));
+        assertEquals(0, productEventRelay.prune());
+    }
+
+    private static Product newProduct() {
+        return Product.builder()
+                .name("Product")
+                .description("Description")
+                .price(new BigDecimal("1.00"))
+                .build();
+    }
+}
@@ -0,0 +1,172 @@
+package com.bruno.abreu.productms.service.replica;
+
+import com.bruno.abreu.productms.config.ReplicaProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private HikariDataSource first;
+    private HikariDataSource second;
+    private Connection primaryConnection;
+    private Connection firstConnection;
+    private Connection secondConnection;
+    private Duration readYourWritesWindow;
+    private ReplicaRouting replicaRouting;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        primary = mock(DataSource.class);
+        first = replica("replica-0");
+        second = replica("replica-1");
+        primaryConnection = mock(Connection.class);
+        firstConnection = mock(Connection.class);
+        secondConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(first.getConnection()).thenReturn(firstConnection);
+        when(second.getConnection()).thenReturn(secondConnection);
+        readYourWritesWindow = Duration.ZERO;
+        replicaRouting = new ReplicaRouting(() -> readYourWritesWindow);
+    }
+
+    @Test
+    void connectionsOutsideReplicaReadsShouldComeFromThePrimary() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaProperties.Balancing.ROUND_ROBIN);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        verifyNoInteractions(first, second);
+    }
+
+    @Test
+    void connectionsWithCredentialsShouldBeRoutedLikeTheOthers() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaProperties.Balancing.ROUND_ROBIN);
+        when(primary.getConnection("user", "password")).thenReturn(primaryConnection);
+        when(first.getConnection("user", "password")).thenReturn(firstConnection);
+
+        assertSame(primaryConnection, dataSource.getConnection("user", "password"));
+        try (ReplicaRouting.Scope scope = replicaRouting.replicaRead()) {
+            assertSame(firstConnection, dataSource.getConnection("user", "password"));
+        }
+    }
+
+    @Test
+    void roundRobinShouldAlternateBetweenReplicas() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaProperties.Balancing.ROUND_ROBIN);
+
+        try (ReplicaRouting.Scope scope = replicaRouting.replicaRead()) {
+            assertSame(firstConnection, dataSource.getConnection());
+            assertSame(secondConnection, dataSource.getConnection());
+            assertSame(firstConnection, dataSource.getConnection());
+        }
+    }
+
+    @Test
+    void leastLoadedShouldPickTheReplicaWithFewestActiveConnections() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaProperties.Balancing.LEAST_LOADED);
+        when(first.getHikariPoolMXBean().getActiveConnections()).thenReturn(5);
+        when(second.getHikariPoolMXBean().getActiveConnections()).thenReturn(2);
+
+        try (ReplicaRouting.Scope scope = replicaRouting.replicaRead()) {
+            assertSame(secondConnection, dataSource.getConnection());
+            assertSame(secondConnection, dataSource.getConnection());
+        }
+    }
+
+    @Test
+    void failedHealthCheckShouldTakeTheReplicaOutUntilItPassesAgain() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaProperties.Balancing.ROUND_ROBIN);
+        when(firstConnection.isValid(anyInt())).thenReturn(true);
+        when(second.getConnection()).thenThrow(new SQLException("down"));
+
+        dataSource.checkHealth();
+
+        assertEquals(List.of("replica-0"), dataSource.getHealthyReplicas());
+        try (ReplicaRouting.Scope scope = replicaRouting.replicaRead()) {
+            assertSame(firstConnection, dataSource.getConnection());
+            assertSame(firstConnection, dataSource.getConnection());
+        }
+
+        doReturn(secondConnection).when(second).getConnection();
+        when(secondConnection.isValid(anyInt())).thenReturn(true);
+        dataSource.checkHealth();
+
+        assertEquals(List.of("replica-0", "replica-1"), dataSource.getHealthyReplicas());
+    }
+
+    @Test
+    void replicaReadsShouldFallBackToThePrimaryWhenNoReplicaIsAvailable() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaProperties.Balancing.ROUND_ROBIN);
+        when(first.getConnection()).thenThrow(new SQLException("down"));
+        when(second.getConnection()).thenThrow(new SQLException("down"));
+
+        try (ReplicaRouting.Scope scope = replicaRouting.replicaRead()) {
+            assertSame(primaryConnection, dataSource.getConnection());
+            assertSame(primaryConnection, dataSource.getConnection());
+        }
+        assertTrue(dataSource.getHealthyReplicas().isEmpty());
+    }
+
+    @Test
+    void replicaReadsInsideAReadWriteTransactionShouldUseThePrimary() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaProperties.Balancing.ROUND_ROBIN);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try (ReplicaRouting.Scope scope = replicaRouting.replicaRead()) {
+            assertSame(primaryConnection, dataSource.getConnection());
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            assertSame(firstConnection, dataSource.getConnection());
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    @Test
+    void replicaReadsShouldUseThePrimaryWithinTheReadYourWritesWindow() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaProperties.Balancing.ROUND_ROBIN);
+        readYourWritesWindow = Duration.ofMinutes(1);
+
+        try (ReplicaRouting.Scope scope = replicaRouting.replicaRead()) {
+            assertSame(firstConnection, dataSource.getConnection());
+            replicaRouting.written();
+            assertSame(primaryConnection, dataSource.getConnection());
+            readYourWritesWindow = Duration.ZERO;
+            assertSame(secondConnection, dataSource.getConnection());
+        }
+    }
+
+    @Test
+    void nestedReplicaReadsShouldKeepRoutingUntilTheOutermostEnds() {
+        try (ReplicaRouting.Scope outer = replicaRouting.replicaRead()) {
+            try (ReplicaRouting.Scope inner = replicaRouting.replicaRead()) {
+                assertTrue(replicaRouting.isReplicaRead());
+            }
+            assertTrue(replicaRouting.isReplicaRead());
+        }
+        assertFalse(replicaRouting.isReplicaRead());
+    }
+
+    private ReplicaRoutingDataSource routing(ReplicaProperties.Balancing balancing) {
+        return new ReplicaRoutingDataSource(primary, List.of(first, second), replicaRouting, balancing, 1);
+    }
+
+    private static HikariDataSource replica(String poolName) {
+        HikariDataSource replica = mock(HikariDataSource.class);
+        HikariPoolMXBean pool = mock(HikariPoolMXBean.class);
+        when(replica.getPoolName()).thenReturn(poolName);
+        when(replica.getHikariPoolMXBean()).thenReturn(pool);
+        return replica;
+    }
+}
@@ -0,0 +1,138 @@
+package com.bruno.abreu.productms.service.replica;
+
+import com.bruno.abreu.productms.config.ReplicaProperties;
+import com.bruno.abreu.productms.exception.ProductNotFound;
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.repository.ProductRepository;
+import com.bruno.abreu.productms.service.ProductService;
+import com.bruno.abreu.productms.service.cache.ProductCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against two H2 databases: the usual test database as the primary, and a replica holding products the
+ * primary does not have, so each read shows where it was served from.
+ */
+@SpringBootTest(properties = {
+        "product.search.backend=jpa",
+        "product.datasource.replicas[0].url=" + ReplicaRoutingTest.REPLICA_URL
+})
+class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:product-ms-replica;DB_CLOSE_DELAY=-1";
+
+    private static final UUID REPLICA_ONLY_ID = UUID.fromString("00000000-0000-0000-0000-0000000000aa");
+    private static final UUID LAGGING_ID = UUID.fromString("00000000-0000-0000-0000-0000000000bb");
+
+    private static JdbcTemplate replica;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ReplicaProperties replicaProperties;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void createReplica() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "password");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        replica = new JdbcTemplate(dataSource);
+        replica.update("insert into product (id, name, description, price) values " +
+                "(X'000000000000000000000000000000aa', 'Replica only', 'Description', 1.00), " +
+                "(X'000000000000000000000000000000bb', 'Lagging', 'Description', 2.00)");
+    }
+
+    @Test
+    void readsShouldBeServedByTheReplica() {
+        assertTrue(productService.findAll(null, 100).stream().anyMatch(p -> p.getId().equals(REPLICA_ONLY_ID)));
+        assertEquals(List.of(REPLICA_ONLY_ID), productService.findBySearchParameters("Replica only", null, null)
+                .stream().map(Product::getId).collect(Collectors.toList()));
+
+        assertTrue(productRepository.findById(REPLICA_ONLY_ID).isEmpty());
+    }
+
+    @Test
+    void cacheMissesShouldBeReadFromThePrimary() {
+        productCache.evict(List.of(REPLICA_ONLY_ID, LAGGING_ID));
+
+        assertThrows(ProductNotFound.class, () -> productService.findById(REPLICA_ONLY_ID));
+        assertEquals(List.of(REPLICA_ONLY_ID, LAGGING_ID),
+                productService.findAllById(List.of(REPLICA_ONLY_ID, LAGGING_ID)).getMissing());
+        productCache.evict(List.of(REPLICA_ONLY_ID, LAGGING_ID));
+    }
+
+    @Test
+    void versionChecksShouldBeServedByTheReplica() {
+        productCache.evict(REPLICA_ONLY_ID);
+
+        assertEquals(0L, productService.findVersionById(REPLICA_ONLY_ID).getVersion());
+    }
+
+    @Test
+    void failedConditionalUpdateShouldCheckTheVersionOnThePrimary() {
+        Product replicaOnly = newProduct().toBuilder().id(REPLICA_ONLY_ID).version(0L).build();
+
+        assertThrows(ProductNotFound.class, () -> productService.update(replicaOnly));
+    }
+
+    @Test
+    void writesShouldGoToThePrimary() {
+        Product created = productService.create(newProduct());
+        Product updated = productService.update(created.toBuilder().price(new BigDecimal("3.00")).build());
+
+        assertEquals(new BigDecimal("3.00"), productRepository.findById(created.getId()).orElseThrow().getPrice());
+        assertEquals(created.getVersion() + 1, updated.getVersion());
+        assertEquals(0, replica.queryForObject("select count(*) from product where name = 'Created'", Integer.class));
+    }
+
+    @Test
+    void readsWithinTheReadYourWritesWindowShouldBeServedByThePrimary() {
+        replicaProperties.setReadYourWritesWindow(Duration.ofMinutes(1));
+        try {
+            productService.create(newProduct());
+
+            assertTrue(productService.findAll(null, 100).stream().noneMatch(p -> p.getId().equals(LAGGING_ID)));
+        } finally {
+            replicaProperties.setReadYourWritesWindow(Duration.ZERO);
+        }
+        assertTrue(productService.findAll(null, 100).stream().anyMatch(p -> p.getId().equals(LAGGING_ID)));
+    }
+
+    @Test
+    void replicaPoolsShouldPublishMetrics() {
+        assertEquals(1, meterRegistry.get("product.db.replicas.healthy").gauge().value());
+        assertNotNull(meterRegistry.get("hikaricp.connections.max").tag("pool", "replica-0").gauge());
+    }
+
+    private static Product newProduct() {
+        return Product.builder()
+                .name("Created")
+                .description("Description")
+                .price(new BigDecimal("1.00"))
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.bruno.abreu.productms.service.search;
+
+import com.bruno.abreu.productms.model.Product;
+import com.bruno.abreu.productms.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "product.search.backend=index")
+class InMemoryProductSearchIndexContextTest {
+
+    @Autowired
+    private ProductSearchBackend productSearchBackend;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void indexBackendShouldBeOptIn() {
+        assertTrue(productSearchBackend instanceof InMemoryProductSearchIndex);
+    }
+
+    @Test
+    void searchShouldFindProductsWrittenByThisInstance() {
+        Product created = productService.create(Product.builder()
+                .name("Indexed Trackball")
+                .description("Description")
+                .price(new BigDecimal("1.00"))
+                .build());
+
+        List<Product> found = productService.findBySearchParameters("indexed trackball", null, null);
+
+        assertEquals(List.of(created.getId()), found.stream().map(Product::getId).collect(Collectors.toList()));
+    }
+}
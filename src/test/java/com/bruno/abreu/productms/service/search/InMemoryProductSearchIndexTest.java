@@ -0,0 +1,145 @@
+package com.bruno.abreu.productms.service.search;
+
+import com.bruno.abreu.productms.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InMemoryProductSearchIndexTest {
+
+    private ProductSearchBackend fallback;
+    private InMemoryProductSearchIndex index;
+
+    private Product keyboard;
+    private Product mouse;
+    private Product cable;
+
+    @BeforeEach
+    void setup() {
+        fallback = mock(ProductSearchBackend.class);
+        index = new InMemoryProductSearchIndex(fallback, null, null, null);
+
+        keyboard = Product.builder()
+                .id(UUID.randomUUID())
+                .name("Mechanical Keyboard")
+                .description("Keyboard with brown switches")
+                .price(new BigDecimal("300.0"))
+                .build();
+        mouse = Product.builder()
+                .id(UUID.randomUUID())
+                .name("Wireless Mouse")
+                .description("Works with any keyboard receiver")
+                .price(new BigDecimal("80.0"))
+                .build();
+        cable = Product.builder()
+                .id(UUID.randomUUID())
+                .name("USB Cable")
+                .description("Two meters long")
+                .price(new BigDecimal("15.0"))
+                .build();
+        index.rebuild(Stream.of(keyboard, mouse, cable));
+    }
+
+    @Test
+    void searchBeforeFirstBuildShouldUseFallback() {
+        InMemoryProductSearchIndex emptyIndex = new InMemoryProductSearchIndex(fallback, null, null, null);
+        when(fallback.search("keyboard", new BigDecimal("1.0"), new BigDecimal("2.0"))).thenReturn(List.of(keyboard));
+
+        assertFalse(emptyIndex.isReady());
+        assertEquals(List.of(keyboard), emptyIndex.search("keyboard", new BigDecimal("1.0"), new BigDecimal("2.0")));
+    }
+
+    @Test
+    void searchAfterBuildShouldNotUseFallback() {
+        index.search("keyboard", null, null);
+
+        assertTrue(index.isReady());
+        verifyNoInteractions(fallback);
+    }
+
+    @Test
+    void searchShouldMatchNameAndDescriptionIgnoringCase() {
+        assertEquals(List.of(keyboard, mouse), index.search("KEYBOARD", null, null));
+    }
+
+    @Test
+    void searchShouldRankNameMatchesFirst() {
+        List<Product> products = index.search("board", null, null);
+
+        assertEquals(keyboard, products.get(0));
+        assertEquals(mouse, products.get(1));
+    }
+
+    @Test
+    void searchShouldMatchSubstringsLikeTheDatabaseQuery() {
+        assertEquals(List.of(mouse), index.search("less mou", null, null));
+        assertEquals(List.of(cable), index.search("sb", null, null));
+        assertTrue(index.search("trackball", null, null).isEmpty());
+    }
+
+    @Test
+    void searchShouldApplyPriceRange() {
+        assertEquals(List.of(mouse), index.search("keyboard", new BigDecimal("50.0"), new BigDecimal("100.0")));
+        assertTrue(index.search("keyboard", new BigDecimal("400.0"), new BigDecimal("500.0")).isEmpty());
+    }
+
+    @Test
+    void searchWithoutTextShouldReturnProductsInPriceRangeOrderedByPrice() {
+        assertEquals(List.of(cable, mouse, keyboard), index.search("", null, null));
+        assertEquals(List.of(cable, mouse), index.search("", new BigDecimal("15.0"), new BigDecimal("80.0")));
+    }
+
+    @Test
+    void searchShouldCompareBoundsExactlyInCents() {
+        assertEquals(List.of(cable), index.search("", new BigDecimal("14.999"), new BigDecimal("15.001")));
+        assertEquals(List.of(cable), index.search("", new BigDecimal("15.00"), new BigDecimal("15")));
+        assertTrue(index.search("", new BigDecimal("15.001"), new BigDecimal("79.999")).isEmpty());
+    }
+
+    @Test
+    void indexShouldReplacePreviousVersionOfProduct() {
+        Product renamed = keyboard.toBuilder().name("Optical Keyboard").price(new BigDecimal("50.0")).build();
+        index.index(renamed);
+
+        List<Product> products = index.search("optical", null, null);
+        assertEquals(1, products.size());
+        assertEquals(renamed, products.get(0));
+        assertTrue(index.search("mechanical", null, null).isEmpty());
+        assertEquals(List.of(cable, renamed), index.search("", new BigDecimal("10.0"), new BigDecimal("60.0")));
+    }
+
+    @Test
+    void removeShouldDropProductFromResults() {
+        index.remove(mouse.getId());
+
+        assertEquals(List.of(keyboard), index.search("keyboard", null, null));
+        assertEquals(List.of(cable, keyboard), index.search("", null, null));
+    }
+
+    @Test
+    void writesDuringRebuildShouldBeReplayedOnNewSegment() {
+        Product monitor = Product.builder()
+                .id(UUID.randomUUID())
+                .name("Monitor")
+                .description("Ultra wide")
+                .price(new BigDecimal("900.0"))
+                .build();
+
+        index.rebuild(Stream.of(keyboard, mouse).peek(product -> {
+            if (product == mouse) {
+                index.index(monitor);
+                index.remove(keyboard.getId());
+            }
+        }));
+
+        assertEquals(List.of(monitor), index.search("monitor", null, null));
+        assertTrue(index.search("mechanical", null, null).isEmpty());
+    }
+}
@@ -1 +1 @@
-INSERT INTO product (id, description, name, price) VALUES ('788d791e-6c2e-44e3-925c-e6cee648df26', 'Description 5', 'Product 5', 5.5);
+INSERT INTO product (id, description, name, price) VALUES (X'788d791e6c2e44e3925ce6cee648df26', 'Description 5', 'Product 5', 5.5);
@@ -1,5 +1,5 @@
-INSERT INTO product (id, description, name, price) VALUES ('fe13fded-fa56-425b-bc35-ae70981dcfb8', 'Description 1', 'Product 1', 1.1);
-INSERT INTO product (id, description, name, price) VALUES ('97d769a2-e303-4dbf-933a-cb6447a33aab', 'Description 2', 'Product 2', 2.2);
-INSERT INTO product (id, description, name, price) VALUES ('bb6d7120-2ab6-461e-85ac-90cbde57f35c', 'Description 3', 'Product 3', 3.3);
-INSERT INTO product (id, description, name, price) VALUES ('9152eb1e-bb4c-46b9-b1e7-18f4b0813f45', 'Description 4', 'Product 4', 4.4);
-INSERT INTO product (id, description, name, price) VALUES ('568d791e-6c2e-44e3-925c-e6cee648df26', 'Description 5', 'Product 5', 5.5);
+INSERT INTO product (id, description, name, price) VALUES (X'fe13fdedfa56425bbc35ae70981dcfb8', 'Description 1', 'Product 1', 1.1);
+INSERT INTO product (id, description, name, price) VALUES (X'97d769a2e3034dbf933acb6447a33aab', 'Description 2', 'Product 2', 2.2);
+INSERT INTO product (id, description, name, price) VALUES (X'bb6d71202ab6461e85ac90cbde57f35c', 'Description 3', 'Product 3', 3.3);
+INSERT INTO product (id, description, name, price) VALUES (X'9152eb1ebb4c46b9b1e718f4b0813f45', 'Description 4', 'Product 4', 4.4);
+INSERT INTO product (id, description, name, price) VALUES (X'568d791e6c2e44e3925ce6cee648df26', 'Description 5', 'Product 5', 5.5);
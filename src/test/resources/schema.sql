@@ -1,9 +1,49 @@
 DROP TABLE IF EXISTS product;
+DROP TABLE IF EXISTS product_tombstone;
+DROP TABLE IF EXISTS product_event;
+DROP TABLE IF EXISTS product_event_cursor;
 
 create table product
 (
-  id          varchar(255) not null primary key,
-  description varchar(255) null,
-  name        varchar(255) null,
-  price       double       not null
-);
\ No newline at end of file
+  id          binary(16)    not null primary key,
+  description varchar(2000) not null,
+  name        varchar(255)  not null,
+  price       decimal(12,2) not null,
+  version     bigint        not null default 0,
+  created_at  timestamp(6)  not null default current_timestamp(6),
+  updated_at  timestamp(6)  not null default current_timestamp(6),
+  deleted_at  timestamp(6)  null
+);
+
+create index idx_product_price on product (price);
+create index idx_product_name on product (name);
+create index idx_product_updated_at on product (updated_at, id);
+
+create table product_tombstone
+(
+  id         binary(16)   not null primary key,
+  deleted_at timestamp(6) not null
+);
+
+create index idx_product_tombstone_deleted_at on product_tombstone (deleted_at, id);
+
+create table product_event
+(
+  id           bigint       not null auto_increment primary key,
+  event_offset bigint       null unique,
+  type         varchar(16)  not null,
+  product_id   binary(16)   not null,
+  version      bigint       null,
+  occurred_at  timestamp(6) not null,
+  payload      clob         null
+);
+
+create index idx_product_event_occurred_at on product_event (occurred_at, event_offset);
+
+create table product_event_cursor
+(
+  id          int    not null primary key,
+  last_offset bigint not null
+);
+
+insert into product_event_cursor (id, last_offset) values (1, 0);